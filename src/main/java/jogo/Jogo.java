@@ -14,6 +14,7 @@ import jogo.appstate.WorldAppState;
 import jogo.appstate.HudAppState;
 import jogo.appstate.RenderAppState;
 import jogo.appstate.InteractionAppState;
+import jogo.appstate.SaveAppState;
 
 // Imports do Engine
 import jogo.engine.GameRegistry;
@@ -50,7 +51,11 @@ public class Jogo extends SimpleApplication {
         viewPort.setBackgroundColor(new ColorRGBA(0.6f, 0.75f, 1f, 1f)); // Cor do céu
 
         // 2. Configurar Física (Bullet)
+        // Com -Djogo.physics.parallel=true o passo de física corre numa thread à parte,
+        // ao mesmo tempo que o render; o mundo e o jogador passam a falar com ele por fila
+        boolean parallelPhysics = Boolean.getBoolean("jogo.physics.parallel");
         bulletAppState = new BulletAppState();
+        if (parallelPhysics) bulletAppState.setThreadingType(BulletAppState.ThreadingType.PARALLEL);
         stateManager.attach(bulletAppState);
         bulletAppState.setDebugEnabled(false); // Mete 'true' se quiseres ver as caixas de colisão
         PhysicsSpace physicsSpace = bulletAppState.getPhysicsSpace();
@@ -63,6 +68,7 @@ public class Jogo extends SimpleApplication {
 
         // Mundo (Voxels e Lógica de Terreno)
         WorldAppState world = new WorldAppState(rootNode, assetManager, physicsSpace, cam, input);
+        world.setParallelPhysics(parallelPhysics);
         stateManager.attach(world);
 
         // Registo de Objetos e Renderização
@@ -77,8 +83,14 @@ public class Jogo extends SimpleApplication {
 
         // Player (Controlador do Jogador)
         PlayerAppState playerState = new PlayerAppState(rootNode, assetManager, cam, input, physicsSpace, world);
+        // Com -Djogo.player.voxelMotor=true o jogador anda com o VoxelMotor (caixa contra os
+        // voxels, como os aliados) em vez do BetterCharacterControl do Bullet
+        playerState.setUseVoxelMotor(Boolean.getBoolean("jogo.player.voxelMotor"));
         stateManager.attach(playerState);
 
+        // Autosave (chunks editados + inventário) numa thread de I/O
+        stateManager.attach(new SaveAppState(world, playerState));
+
         // ==================================================================================
         // INÍCIO DA LÓGICA DO ALIADO (NPC)
         // ==================================================================================
@@ -5,16 +5,20 @@ import com.jme3.app.SimpleApplication;
 import com.jme3.app.state.BaseAppState;
 import com.jme3.collision.CollisionResult;
 import com.jme3.collision.CollisionResults;
+import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
 import com.jme3.math.Ray;
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
+import com.jme3.renderer.Statistics;
 import com.jme3.scene.Node;
 
 import jogo.Interfaces.InventoryView;
 import jogo.Interfaces.CraftingView;
 import jogo.gameobject.character.Player;
 import jogo.gameobject.item.Item;
+import jogo.voxel.VoxelWorld;
 
 public class HudAppState extends BaseAppState {
 
@@ -25,6 +29,15 @@ public class HudAppState extends BaseAppState {
 
     private boolean inventoryVisible = false;
 
+    // Contador de draw calls (canto superior direito)
+    private BitmapText drawCallText;
+    private Statistics statistics;
+    private String[] statLabels;
+    private int[] statValues;
+    // Estatísticas de armazenamento percorrem todos os chunks: só uma vez por segundo
+    private String storageStats = "-";
+    private float storageTimer = 1f;
+
     @Override
     protected void initialize(Application app) {
         this.guiNode = ((SimpleApplication) app).getGuiNode();
@@ -53,6 +66,15 @@ public class HudAppState extends BaseAppState {
         float craftX = width * 0.75f;
         craftingView.getNode().setLocalTranslation(craftX, baseY, 0);
 
+        // === DRAW CALLS ===
+        BitmapFont font = app.getAssetManager().loadFont("Interface/Fonts/Default.fnt");
+        drawCallText = new BitmapText(font, false);
+        drawCallText.setLocalTranslation(width - 380, height - 10, 0);
+        guiNode.attachChild(drawCallText);
+        statistics = app.getRenderer().getStatistics();
+        statLabels = statistics.getLabels();
+        statValues = new int[statLabels.length];
+
         System.out.println("✓ HUD inicializado (Inventário @ " + invX + ", Crafting @ " + craftX + ", Y = " + baseY + ")");
     }
 
@@ -181,6 +203,9 @@ public class HudAppState extends BaseAppState {
         if (craftingView != null && craftingView.getNode() != null) {
             guiNode.detachChild(craftingView.getNode());
         }
+        if (drawCallText != null) {
+            guiNode.detachChild(drawCallText);
+        }
     }
 
     @Override
@@ -194,5 +219,45 @@ public class HudAppState extends BaseAppState {
     }
 
     @Override
-    public void update(float tpf) {}
+    public void update(float tpf) {
+        storageTimer += tpf;
+        updateDrawCallText();
+    }
+
+    /**
+     * Mostra os objetos desenhados no último frame (= draw calls) e quantas geometrias de
+     * chunk existem no total, para comparar os modos de materiais, e os chunks reconstruídos
+     * no último frame (com os que ainda esperam na fila e os pedidos de malha em curso/falhados).
+     * Por baixo, o que o armazenamento compacto poupa: chunks vazios/uniformes, bytes de voxels
+     * e malhas que nem chegaram a ser construídas.
+     */
+    private void updateDrawCallText() {
+        statistics.getData(statValues);
+        int objects = statValue("Objects");
+        int triangles = statValue("Triangles");
+        WorldAppState world = getState(WorldAppState.class);
+        VoxelWorld voxelWorld = world != null ? world.getVoxelWorld() : null;
+        String chunks = voxelWorld == null ? "-" : voxelWorld.getChunkGeometryCount()
+                + (voxelWorld.isTextureArrayMode() ? " (texture array)" : " (per type)");
+        String rebuilds = voxelWorld == null ? "-" : voxelWorld.getLastRebuildCount()
+                + " (" + voxelWorld.getDirtyChunkCount() + " queued, " + voxelWorld.getPendingMeshBuilds()
+                + " meshing, " + voxelWorld.getFailedMeshBuilds() + " failed)";
+        if (storageTimer >= 1f) {
+            storageTimer = 0f;
+            storageStats = voxelWorld == null ? "-" : voxelWorld.getEmptyChunkCount() + " empty, "
+                    + voxelWorld.getUniformChunkCount() + " uniform, "
+                    + String.format("%.1f MB", voxelWorld.getVoxelStorageBytes() / (1024f * 1024f))
+                    + "\nMeshes skipped: " + voxelWorld.getSkippedEmptyMeshes() + " empty, "
+                    + voxelWorld.getSkippedEnclosedMeshes() + " enclosed";
+        }
+        drawCallText.setText("Draw calls: " + objects + "\nTriangles: " + triangles + "\nChunk geometries: " + chunks
+                + "\nChunk rebuilds: " + rebuilds + "\nChunk storage: " + storageStats);
+    }
+
+    private int statValue(String label) {
+        for (int i = 0; i < statLabels.length; i++) {
+            if (statLabels[i].equals(label)) return statValues[i];
+        }
+        return 0;
+    }
 }
@@ -19,6 +19,8 @@ public class InputAppState extends BaseAppState implements ActionListener, Analo
     private volatile boolean jumpRequested;
     private volatile boolean breakRequested;
     private volatile boolean toggleShadingRequested;
+    private volatile boolean toggleGreedyRequested;
+    private volatile boolean toggleTextureArrayRequested;
     private volatile boolean respawnRequested;
     private volatile boolean interactRequested;
     private volatile boolean showInventoryRequested;
@@ -56,6 +58,8 @@ public class InputAppState extends BaseAppState implements ActionListener, Analo
         // Actions
         im.addMapping("Break", new MouseButtonTrigger(MouseInput.BUTTON_LEFT));
         im.addMapping("ToggleShading", new KeyTrigger(KeyInput.KEY_L));
+        im.addMapping("ToggleGreedy", new KeyTrigger(KeyInput.KEY_G));
+        im.addMapping("ToggleTextureArray", new KeyTrigger(KeyInput.KEY_T));
         im.addMapping("Respawn", new KeyTrigger(KeyInput.KEY_R));
         im.addMapping("Interact", new KeyTrigger(KeyInput.KEY_E));
 
@@ -68,7 +72,7 @@ public class InputAppState extends BaseAppState implements ActionListener, Analo
         im.addMapping("RightClick", new MouseButtonTrigger(MouseInput.BUTTON_RIGHT));
 
         im.addListener(this, "MoveForward", "MoveBackward", "MoveLeft", "MoveRight",
-                "Jump", "Sprint", "ToggleMouse", "Break", "ToggleShading",
+                "Jump", "Sprint", "ToggleMouse", "Break", "ToggleShading", "ToggleGreedy", "ToggleTextureArray",
                 "Respawn", "Interact", "Inventory", "Crafting",
                 "LeftClick", "RightClick");
         im.addListener(this, "MouseX+", "MouseX-", "MouseY+", "MouseY-");
@@ -90,6 +94,8 @@ public class InputAppState extends BaseAppState implements ActionListener, Analo
         im.deleteMapping("ToggleMouse");
         im.deleteMapping("Break");
         im.deleteMapping("ToggleShading");
+        im.deleteMapping("ToggleGreedy");
+        im.deleteMapping("ToggleTextureArray");
         im.deleteMapping("Respawn");
         im.deleteMapping("Interact");
         im.deleteMapping("Inventory");
@@ -127,6 +133,12 @@ public class InputAppState extends BaseAppState implements ActionListener, Analo
             case "ToggleShading" -> {
                 if (isPressed) toggleShadingRequested = true;
             }
+            case "ToggleGreedy" -> {
+                if (isPressed) toggleGreedyRequested = true;
+            }
+            case "ToggleTextureArray" -> {
+                if (isPressed) toggleTextureArrayRequested = true;
+            }
             case "Respawn" -> {
                 if (isPressed) respawnRequested = true;
             }
@@ -187,6 +199,18 @@ public class InputAppState extends BaseAppState implements ActionListener, Analo
         return r;
     }
 
+    public boolean consumeToggleGreedyRequested() {
+        boolean r = toggleGreedyRequested;
+        toggleGreedyRequested = false;
+        return r;
+    }
+
+    public boolean consumeToggleTextureArrayRequested() {
+        boolean r = toggleTextureArrayRequested;
+        toggleTextureArrayRequested = false;
+        return r;
+    }
+
     public boolean consumeRespawnRequested() {
         boolean r = respawnRequested;
         respawnRequested = false;
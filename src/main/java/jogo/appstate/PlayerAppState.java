@@ -13,6 +13,8 @@ import com.jme3.renderer.Camera;
 import com.jme3.scene.Node;
 import jogo.gameobject.character.Player;
 import jogo.appstate.InputAppState;
+import jogo.voxel.PhysicsHandoff;
+import jogo.voxel.VoxelBody;
 
 public class PlayerAppState extends BaseAppState {
 
@@ -25,6 +27,14 @@ public class PlayerAppState extends BaseAppState {
 
     private Node playerNode;
     private BetterCharacterControl characterControl;
+    // With useVoxelMotor the world's VoxelMotor moves this box instead of Bullet
+    private boolean useVoxelMotor = false;
+    private VoxelBody body;
+    private final Vector3f bodyLocation = new Vector3f();
+    // Com a física numa thread à parte: chamadas ao Bullet em fila, posição lida dos snapshots
+    private PhysicsHandoff physicsHandoff;
+    private final Vector3f feetLocation = new Vector3f();
+    private final Vector3f walkDirection = new Vector3f();   // the last one queued
     private Player player;
 
     // view angles
@@ -50,11 +60,20 @@ public class PlayerAppState extends BaseAppState {
         world.registerPlayerAppState(this);
     }
 
+    /**
+     * Moves the player with the world's {@link jogo.voxel.VoxelMotor} (a box colliding with
+     * the voxels) instead of Bullet's BetterCharacterControl. Call before attaching.
+     */
+    public void setUseVoxelMotor(boolean useVoxelMotor) {
+        this.useVoxelMotor = useVoxelMotor;
+    }
+
     @Override
     protected void initialize(Application app) {
         // query world for recommended spawn now that it should be initialized
         if (world != null) {
             spawnPosition = world.getRecommendedSpawnPosition();
+            physicsHandoff = world.getPhysicsHandoff();
         }
 
         playerNode = new Node("Player");
@@ -64,12 +83,22 @@ public class PlayerAppState extends BaseAppState {
         // Cria o jogador com nome "Steve" na posição 0, 10, 0
         player = new Player("Steve", 0, 10, 0);
 
-        // BetterCharacterControl(radius, height, mass)
-        characterControl = new BetterCharacterControl(0.42f, 1.8f, 80f);
-        characterControl.setGravity(new Vector3f(0, -24f, 0));
-        characterControl.setJumpForce(new Vector3f(0, 400f, 0));
-        playerNode.addControl(characterControl);
-        physicsSpace.add(characterControl);
+        if (useVoxelMotor) {
+            // Box 0.6 wide so it fits one-block gaps; gravity comes from the motor
+            body = new VoxelBody(0.3f, 1.8f);
+            world.getCharacterMotor().add(body);
+        } else {
+            // BetterCharacterControl(radius, height, mass)
+            characterControl = new BetterCharacterControl(0.42f, 1.8f, 80f);
+            characterControl.setGravity(new Vector3f(0, -24f, 0));
+            characterControl.setJumpForce(new Vector3f(0, 400f, 0));
+            playerNode.addControl(characterControl);
+            BetterCharacterControl control = characterControl;
+            physics(() -> physicsSpace.add(control));
+            // chunk bodies are only kept around tracked bodies
+            world.getVoxelWorld().trackBody(control.getRigidBody());
+            if (physicsHandoff != null) physicsHandoff.trackOnGround(control);
+        }
 
         // Local light source that follows the player's head
         playerLight = new PointLight();
@@ -96,11 +125,14 @@ public class PlayerAppState extends BaseAppState {
             respawn();
         }
 
+        // the motor ticked after the last frame's update; show where it left the body
+        if (body != null) playerNode.setLocalTranslation(world.getCharacterMotor().interpolate(body, bodyLocation));
+
         // pause controls if mouse not captured
         if (!input.isMouseCaptured()) {
-            characterControl.setWalkDirection(Vector3f.ZERO);
+            setWalkDirection(Vector3f.ZERO);
             // keep light with player even when paused
-            if (playerLight != null) playerLight.setPosition(playerNode.getWorldTranslation().add(0, eyeHeight, 0));
+            if (playerLight != null) playerLight.setPosition(feet().add(0, eyeHeight, 0));
             applyViewToCamera();
             return;
         }
@@ -122,18 +154,22 @@ public class PlayerAppState extends BaseAppState {
             dir = computeWorldMove(wish).normalizeLocal();
         }
         float speed = moveSpeed * (input.isSprinting() ? sprintMultiplier : 1f);
-        characterControl.setWalkDirection(dir.mult(speed));
+        setWalkDirection(dir.mult(speed));
 
         // jump
-        if (input.consumeJumpRequested() && characterControl.isOnGround()) {
-            characterControl.jump();
+        if (input.consumeJumpRequested()) {
+            if (body != null) {
+                if (body.isOnGround()) body.jump();
+            } else if (characterOnGround()) {
+                physics(characterControl::jump);
+            }
         }
 
         // place camera at eye height above physics location
         applyViewToCamera();
 
         // update light to follow head
-        if (playerLight != null) playerLight.setPosition(playerNode.getWorldTranslation().add(0, eyeHeight, 0));
+        if (playerLight != null) playerLight.setPosition(feet().add(0, eyeHeight, 0));
 
         // Inventário: se o InputAppState pediu, abrir/fechar HUD
         if (input.consumeShowInventoryRequested()) {
@@ -162,13 +198,56 @@ public class PlayerAppState extends BaseAppState {
     }
 
     private void respawn() {
-        characterControl.setWalkDirection(Vector3f.ZERO);
-        characterControl.warp(spawnPosition);
+        setWalkDirection(Vector3f.ZERO);
+        playerNode.setLocalTranslation(spawnPosition);
+        if (body != null) {
+            body.warp(spawnPosition.x, spawnPosition.y, spawnPosition.z);
+        } else {
+            // with parallel physics the warp waits for the next tick, not halfway through one
+            BetterCharacterControl control = characterControl;
+            Vector3f spawn = spawnPosition.clone();
+            physics(() -> control.warp(spawn));
+        }
         // Reset look
         this.pitch = -0.35f;
         applyViewToCamera();
     }
 
+    // Runs a call into the physics space now, or at the next tick when Bullet has its own thread
+    private void physics(Runnable command) {
+        if (physicsHandoff != null) physicsHandoff.execute(command);
+        else command.run();
+    }
+
+    // Where the character stands; with parallel physics, blended from the last two ticks
+    private Vector3f feet() {
+        if (characterControl != null && physicsHandoff != null
+                && physicsHandoff.getLocation(characterControl.getRigidBody(), feetLocation) != null) {
+            return feetLocation;
+        }
+        return playerNode.getWorldTranslation();
+    }
+
+    // With parallel physics, from the last tick: the control updates it during the step
+    private boolean characterOnGround() {
+        if (physicsHandoff != null) return physicsHandoff.isOnGround(characterControl.getRigidBody());
+        return characterControl.isOnGround();
+    }
+
+    private void setWalkDirection(Vector3f velocity) {
+        if (body != null) {
+            body.setWalkDirection(velocity.x, velocity.z);
+        } else if (physicsHandoff == null) {
+            characterControl.setWalkDirection(velocity);
+        } else if (!velocity.equals(walkDirection)) {
+            // the step reads it, so it changes at the next tick; only queue changes
+            walkDirection.set(velocity);
+            BetterCharacterControl control = characterControl;
+            Vector3f walk = velocity.clone();
+            physicsHandoff.execute(() -> control.setWalkDirection(walk));
+        }
+    }
+
     private Vector3f computeWorldMove(Vector3f inputXZ) {
         // Build forward and left unit vectors from yaw
         float sinY = FastMath.sin(yaw);
@@ -180,16 +259,26 @@ public class PlayerAppState extends BaseAppState {
 
     private void applyViewToCamera() {
         // Character world location (spatial is synced by control)
-        Vector3f loc = playerNode.getWorldTranslation().add(0, eyeHeight, 0);
+        Vector3f feet = feet();
+        // Keep the engine-neutral Player where the character is (allies follow it)
+        player.setPosition(feet.x, feet.y, feet.z);
+        Vector3f loc = feet.add(0, eyeHeight, 0);
         cam.setLocation(loc);
         cam.setRotation(new com.jme3.math.Quaternion().fromAngles(pitch, yaw, 0f));
     }
 
     @Override
     protected void cleanup(Application app) {
+        if (body != null) {
+            world.getCharacterMotor().remove(body);
+            body = null;
+        }
         if (playerNode != null) {
             if (characterControl != null) {
-                physicsSpace.remove(characterControl);
+                BetterCharacterControl control = characterControl;
+                world.getVoxelWorld().untrackBody(control.getRigidBody());
+                if (physicsHandoff != null) physicsHandoff.untrackOnGround(control);
+                physics(() -> physicsSpace.remove(control));
                 playerNode.removeControl(characterControl);
                 characterControl = null;
             }
@@ -208,13 +297,6 @@ public class PlayerAppState extends BaseAppState {
     @Override
     protected void onDisable() { }
 
-    public void refreshPhysics() {
-        if (characterControl != null) {
-            physicsSpace.remove(characterControl);
-            physicsSpace.add(characterControl);
-        }
-    }
-
     public jogo.gameobject.character.Player getPlayer() {
         return this.player;
     }
@@ -0,0 +1,215 @@
+package jogo.appstate;
+
+import com.jme3.app.Application;
+import com.jme3.app.state.BaseAppState;
+import jogo.gameobject.character.Player;
+import jogo.gameobject.inventory.Inventory;
+import jogo.gameobject.inventory.InventorySlot;
+import jogo.gameobject.item.Item;
+import jogo.gameobject.item.ItemFactory;
+import jogo.voxel.VoxelWorld;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Autosave. Every {@link #setInterval interval} seconds, between frames, it takes
+ * copy-on-write snapshots of the edited chunks and of the player's inventory; the world's
+ * writer thread then writes them and flushes the region files while the game keeps running.
+ * <p>
+ * Whether a crash can lose or corrupt a round depends on the region files' write order: a
+ * region flush forces the new chunk sectors before the header that points at them, and
+ * never reuses sectors the header on disk still names. The inventory is written only after
+ * that flush succeeds, to a temp file renamed over the old one. A round whose chunk writes,
+ * flush or inventory write failed is reported as failed rather than as saved, and what it
+ * did not write is tried again by the next round.
+ * <p>
+ * A new round only starts once the previous one is on disk. Edits made meanwhile wait for
+ * the next round, and repeated edits of one chunk end up as a single write.
+ */
+public class SaveAppState extends BaseAppState {
+
+    private final WorldAppState worldState;
+    private final PlayerAppState playerState;
+
+    private VoxelWorld voxelWorld;
+    private Path inventoryFile;
+    private float interval = 30f;
+    private float timer = 0f;
+    private CompletableFuture<Void> inFlight;
+    private boolean deferred = false;
+    private volatile Inventory.Snapshot lastInventory;   // last one on disk
+
+    // Métricas: snapshot = tempo no render thread; flush = do snapshot até estar no disco
+    private volatile float lastSnapshotMs, maxSnapshotMs;
+    private volatile float lastFlushMs, maxFlushMs;
+    private int rounds = 0;
+    private int deferredRounds = 0;
+    private volatile int failedRounds = 0;
+
+    public SaveAppState(WorldAppState worldState, PlayerAppState playerState) {
+        this.worldState = worldState;
+        this.playerState = playerState;
+    }
+
+    /** Seconds between autosaves. */
+    public void setInterval(float interval) {
+        this.interval = interval;
+    }
+
+    @Override
+    protected void initialize(Application app) {
+        voxelWorld = worldState.getVoxelWorld();
+        Path dir = voxelWorld != null ? voxelWorld.getSaveDirectory() : null;
+        if (dir == null) return;
+        inventoryFile = dir.resolve("player.properties");
+        loadInventory();
+    }
+
+    @Override
+    public void update(float tpf) {
+        if (inventoryFile == null) return;
+        timer += tpf;
+        if (timer < interval) return;
+        if (inFlight != null && !inFlight.isDone()) {
+            // Backpressure: the disk is behind, let the edits pile into the next round
+            if (!deferred) {
+                deferred = true;
+                deferredRounds++;
+            }
+            return;
+        }
+        timer = 0f;
+        deferred = false;
+        autosave();
+    }
+
+    private void autosave() {
+        long start = System.nanoTime();
+        int chunks = voxelWorld.saveChanges();
+        Inventory.Snapshot inventory = snapshotInventory();
+        boolean inventoryChanged = inventory != null && !inventory.equals(lastInventory);
+        float snapshotMs = (System.nanoTime() - start) / 1e6f;
+        if (chunks == 0 && !inventoryChanged) return;
+
+        lastSnapshotMs = snapshotMs;
+        maxSnapshotMs = Math.max(maxSnapshotMs, snapshotMs);
+        rounds++;
+        // Runs on the world's writer thread, right after the chunks are forced to disk
+        inFlight = voxelWorld.flushSavesAsync().handle((ok, error) -> {
+            if (error != null) {
+                // Chunks stay queued in the store; the inventory waits for the next round
+                failedRounds++;
+                System.err.println("⚠️ Autosave falhou: " + error.getCause());
+                return null;
+            }
+            if (inventoryChanged && !writeInventory(inventory)) {
+                failedRounds++;
+                return null;
+            }
+            float flushMs = (System.nanoTime() - start) / 1e6f;
+            lastFlushMs = flushMs;
+            maxFlushMs = Math.max(maxFlushMs, flushMs);
+            System.out.printf("💾 Autosave: %d chunks%s, snapshot %.2f ms, disco %.1f ms%n",
+                    chunks, inventoryChanged ? " + inventário" : "", snapshotMs, flushMs);
+            return null;
+        });
+    }
+
+    private Inventory.Snapshot snapshotInventory() {
+        Player player = playerState.getPlayer();
+        return player != null ? player.getInventory().snapshot() : null;
+    }
+
+    // Writes the inventory and remembers it as saved; false (logged) if the write failed
+    private boolean writeInventory(Inventory.Snapshot inventory) {
+        Properties props = new Properties();
+        for (int i = 0; i < inventory.size(); i++) {
+            if (inventory.getName(i) == null) continue;
+            props.setProperty("slot." + i + ".item", inventory.getName(i));
+            props.setProperty("slot." + i + ".quantity", String.valueOf(inventory.getQuantity(i)));
+        }
+        try {
+            StringWriter text = new StringWriter();
+            props.store(text, "Inventario do jogador");
+            // Temp file + fsync + rename: a crash leaves either the old or the new inventory
+            Path tmp = inventoryFile.resolveSibling(inventoryFile.getFileName() + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer bytes = StandardCharsets.ISO_8859_1.encode(text.toString());
+                while (bytes.hasRemaining()) ch.write(bytes);
+                ch.force(true);
+            }
+            Files.move(tmp, inventoryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("⚠️ Erro a guardar o inventário: " + e.getMessage());
+            return false;
+        }
+        lastInventory = inventory;
+        return true;
+    }
+
+    private void loadInventory() {
+        Player player = playerState.getPlayer();
+        if (player == null || !Files.exists(inventoryFile)) return;
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(inventoryFile, StandardCharsets.ISO_8859_1)) {
+            props.load(in);
+        } catch (IOException e) {
+            System.err.println("⚠️ Erro a ler o inventário: " + e.getMessage());
+            return;
+        }
+        Inventory inventory = player.getInventory();
+        for (int i = 0; i < inventory.getCapacity(); i++) {
+            String name = props.getProperty("slot." + i + ".item");
+            if (name == null) continue;
+            try {
+                int quantity = Integer.parseInt(props.getProperty("slot." + i + ".quantity", "1"));
+                Item item = ItemFactory.createFromName(name, quantity);
+                InventorySlot slot = inventory.getSlot(i);
+                if (item != null && slot != null) slot.setItem(item);
+            } catch (IllegalArgumentException e) {
+                System.err.println("⚠️ Slot " + i + " do inventário ignorado: " + e.getMessage());
+            }
+        }
+        lastInventory = inventory.snapshot();
+        System.out.println("🎒 Inventário carregado de " + inventoryFile);
+    }
+
+    public float getLastSnapshotMs() { return lastSnapshotMs; }
+    public float getMaxSnapshotMs() { return maxSnapshotMs; }
+    public float getLastFlushMs() { return lastFlushMs; }
+    public float getMaxFlushMs() { return maxFlushMs; }
+    /** Autosaves that had something to write. */
+    public int getRounds() { return rounds; }
+    /** Times a round had to wait because the previous one was still being written. */
+    public int getDeferredRounds() { return deferredRounds; }
+    /** Rounds whose chunks could not all be written and flushed. */
+    public int getFailedRounds() { return failedRounds; }
+
+    @Override
+    protected void cleanup(Application app) {
+        if (inFlight != null) inFlight.join();
+        if (voxelWorld != null) voxelWorld.saveAll();   // no-op if WorldAppState already closed the saves
+        Inventory.Snapshot inventory = snapshotInventory();
+        if (inventoryFile != null && inventory != null && !inventory.equals(lastInventory)) {
+            writeInventory(inventory);
+        }
+    }
+
+    @Override
+    protected void onEnable() { }
+
+    @Override
+    protected void onDisable() { }
+}
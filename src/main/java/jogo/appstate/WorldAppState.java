@@ -10,12 +10,22 @@ import com.jme3.light.DirectionalLight;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
+import com.jme3.renderer.RenderManager;
 import com.jme3.scene.Node;
 import jogo.gameobject.GameObject;
+import jogo.voxel.ChunkMeshService;
+import jogo.voxel.PhysicsHandoff;
+import jogo.voxel.VoxelBody;
+import jogo.voxel.VoxelMotor;
 import jogo.voxel.VoxelWorld;
 import jogo.gameobject.item.Item;
 import jogo.gameobject.item.ItemFactory;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 
 import jogo.gameobject.character.npc.ally.Ally;
 import jogo.gameobject.character.Player;
@@ -32,7 +42,20 @@ public class WorldAppState extends BaseAppState {
     // world root for easy cleanup
     private Node worldNode;
     private VoxelWorld voxelWorld;
+    private ChunkMeshService meshService;
+    // Personagens que andam nos voxels sem Bullet: os aliados (e o jogador, se pedir)
+    private VoxelMotor characterMotor;
+    private final Map<Ally, VoxelBody> allyBodies = new LinkedHashMap<>();
+    private final Vector3f allyLocation = new Vector3f();
+    private float motorTime = 0f;
+    // Bullet a correr na sua própria thread (BulletAppState PARALLEL): o mundo fala com ele por aqui
+    private boolean parallelPhysics = false;
+    private PhysicsHandoff physicsHandoff;
     private com.jme3.math.Vector3f spawnPosition;
+    // 0 = mundo fixo de 320x320; > 0 = mundo infinito carregado à volta do jogador
+    private int streamingRadius = 0;
+    // Region files of the world; each world kind gets its own subfolder
+    private Path saveDirectory = Paths.get("saves");
 
     public WorldAppState(Node rootNode, AssetManager assetManager, PhysicsSpace physicsSpace, Camera cam, InputAppState input) {
         this.rootNode = rootNode;
@@ -42,6 +65,33 @@ public class WorldAppState extends BaseAppState {
         this.input = input;
     }
 
+    /**
+     * Switches to an unbounded world streamed around the camera, keeping this many chunks
+     * loaded in every direction. 0 (the default) keeps the fixed-size world. Call before attaching.
+     */
+    public void setStreamingRadius(int streamingRadius) {
+        this.streamingRadius = Math.max(0, streamingRadius);
+    }
+
+    /**
+     * Tells the world that BulletAppState steps the physics space on its own thread
+     * (ThreadingType.PARALLEL), so calls into the space wait for the start of a tick and
+     * body positions are read from tick snapshots. Call before attaching.
+     */
+    public void setParallelPhysics(boolean parallelPhysics) {
+        this.parallelPhysics = parallelPhysics;
+    }
+
+    /** Queue and snapshots shared with the physics thread; null unless physics is parallel. */
+    public PhysicsHandoff getPhysicsHandoff() {
+        return physicsHandoff;
+    }
+
+    /** Folder for saved worlds; null disables loading and saving. Call before attaching. */
+    public void setSaveDirectory(Path saveDirectory) {
+        this.saveDirectory = saveDirectory;
+    }
+
     public void registerPlayerAppState(PlayerAppState playerAppState) {
         this.playerAppState = playerAppState;
     }
@@ -62,18 +112,38 @@ public class WorldAppState extends BaseAppState {
         worldNode.addLight(sun);
 
         // Voxel world 16x16x16 (reduced size for simplicity)
-        voxelWorld = new VoxelWorld(assetManager, 320, 32, 320);
+        if (streamingRadius > 0) {
+            voxelWorld = VoxelWorld.unbounded(assetManager, 32);
+            voxelWorld.setViewRadius(streamingRadius);
+        } else {
+            voxelWorld = new VoxelWorld(assetManager, 320, 32, 320);
+        }
+        if (saveDirectory != null) {
+            voxelWorld.setSaveDirectory(saveDirectory.resolve(streamingRadius > 0 ? "infinite" : "fixed"));
+        }
         voxelWorld.generateLayers();
+        // The texture-array material does its own lambert, so hand it the same lights
+        voxelWorld.setLighting(sun.getDirection(), sun.getColor(), ambient.getColor());
+        // Chunk meshes are built on worker threads and attached back on the render thread
+        meshService = new ChunkMeshService(app);
+        voxelWorld.setMeshService(meshService);
         voxelWorld.buildMeshes();
         voxelWorld.clearAllDirtyFlags();
 
         voxelWorld.renderFlowers();  // ✅ ADICIONA ISTO - Renderiza as flores DEPOIS
 
         worldNode.attachChild(voxelWorld.getNode());
+        if (parallelPhysics) {
+            physicsHandoff = new PhysicsHandoff();
+            physicsSpace.addTickListener(physicsHandoff);
+            voxelWorld.setPhysicsHandoff(physicsHandoff);
+        }
         voxelWorld.buildPhysics(physicsSpace);
 
         // compute recommended spawn
         spawnPosition = voxelWorld.getRecommendedSpawn();
+
+        characterMotor = new VoxelMotor(voxelWorld);
     }
 
     public com.jme3.math.Vector3f getRecommendedSpawnPosition() {
@@ -84,6 +154,11 @@ public class WorldAppState extends BaseAppState {
         return voxelWorld;
     }
 
+    /** Moves allies (and the player, if it opts in) over the voxels; ticks once per frame in render(). */
+    public VoxelMotor getCharacterMotor() {
+        return characterMotor;
+    }
+
     @Override
     public void update(float tpf) {
         // Partir blocos
@@ -97,9 +172,6 @@ public class WorldAppState extends BaseAppState {
 
                 // Partir o bloco
                 if (voxelWorld.breakAt(cell.x, cell.y, cell.z)) {
-                    voxelWorld.rebuildDirtyChunks(physicsSpace);
-                    playerAppState.refreshPhysics();
-
                     // Criar item e adicionar ao inventário
                     addItemToPlayerInventory(blockId);
                 }
@@ -119,14 +191,57 @@ public class WorldAppState extends BaseAppState {
             voxelWorld.toggleRenderDebug();
         }
 
-        // Atualizar IA dos aliados (já existe no teu código)
-         // updateAlliesAI(tpf);
+        // Toggle greedy meshing / one quad per face
+        if (input != null && input.consumeToggleGreedyRequested()) {
+            voxelWorld.setGreedyMeshing(!voxelWorld.isGreedyMeshing());
+        }
+
+        // Toggle single-geometry chunks (texture array) / one geometry per block type
+        if (input != null && input.consumeToggleTextureArrayRequested()) {
+            voxelWorld.setTextureArrayMode(!voxelWorld.isTextureArrayMode());
+        }
+
+        // Load/unload columns around the player; new columns join the dirty queue below
+        voxelWorld.updateStreaming(cam.getLocation(), physicsSpace);
+
+        // Remesh edited chunks (async); finished meshes from earlier frames are already attached
+        voxelWorld.rebuildDirtyChunks(physicsSpace, cam);
+
+        // Chunk collision shapes catch up with this frame's edits, and bodies follow the player
+        voxelWorld.updatePhysicsBodies(physicsSpace);
+
+        // Atualizar IA dos aliados: só escolhem para onde andar, o motor move-os em render()
+        updateAlliesAI(tpf);
+        motorTime += tpf;
     }
 
     /**
      * Atualiza a IA de todos os aliados no mundo.
      */
+    private void updateAlliesAI(float tpf) {
+        for (Map.Entry<Ally, VoxelBody> e : allyBodies.entrySet()) {
+            Ally ally = e.getKey();
+            ally.updateAI(tpf);
+            e.getValue().setWalkDirection(ally.getWalkX(), ally.getWalkZ());
+        }
+    }
 
+    /**
+     * Character ticks run here, after every state's update has set where its characters
+     * want to go, like BulletAppState's sequential physics step. A parallel step starts
+     * here too (BulletAppState comes first), so its snapshots learn how much time it got.
+     */
+    @Override
+    public void render(RenderManager rm) {
+        if (characterMotor == null) return;
+        if (physicsHandoff != null) physicsHandoff.advance(motorTime);
+        characterMotor.update(motorTime);
+        motorTime = 0f;
+        for (Map.Entry<Ally, VoxelBody> e : allyBodies.entrySet()) {
+            characterMotor.interpolate(e.getValue(), allyLocation);
+            e.getKey().setPosition(allyLocation.x, allyLocation.y, allyLocation.z);
+        }
+    }
 
     /**
      * Adiciona item ao inventário do jogador quando bloco é partido.
@@ -172,15 +287,29 @@ public class WorldAppState extends BaseAppState {
 
     @Override
     protected void cleanup(Application app) {
+        if (voxelWorld != null) {
+            System.out.println("💾 A guardar o mundo...");
+            voxelWorld.closeSaves();
+        }
+        if (meshService != null) {
+            meshService.shutdown();
+            meshService = null;
+        }
         if (worldNode != null) {
             // Remove all physics controls under worldNode
             worldNode.depthFirstTraversal(spatial -> {
                 RigidBodyControl rbc = spatial.getControl(RigidBodyControl.class);
                 if (rbc != null) {
-                    physicsSpace.remove(rbc);
+                    if (physicsHandoff != null) physicsHandoff.execute(() -> physicsSpace.remove(rbc));
+                    else physicsSpace.remove(rbc);
                     spatial.removeControl(rbc);
                 }
             });
+            if (physicsHandoff != null) {
+                PhysicsHandoff handoff = physicsHandoff;
+                handoff.execute(() -> physicsSpace.removeTickListener(handoff));
+                physicsHandoff = null;
+            }
             worldNode.removeFromParent();
             worldNode = null;
         }
@@ -200,8 +329,8 @@ public class WorldAppState extends BaseAppState {
         float targetZ = targetPlayer.getPosition().z + 2.0f;
 
         // 2. Detetar o chão (CRUCIAL PARA NÃO CAIR NO INFINITO)
-        // O cast para (int) é necessário porque o mundo é voxel (inteiros)
-        int groundY = voxelWorld.getTopSolidY((int)targetX, (int)targetZ);
+        // floor e não cast: (int) arredonda para zero e erra a coluna em coordenadas negativas
+        int groundY = voxelWorld.getTopSolidY((int) Math.floor(targetX), (int) Math.floor(targetZ));
 
         float finalY;
         if (groundY == -1) {
@@ -212,9 +341,14 @@ public class WorldAppState extends BaseAppState {
             finalY = groundY + 2.0f;
         }
 
-        // 3. Criar e posicionar
+        // 3. Criar e posicionar; o corpo no motor dá-lhe gravidade e colisões com o terreno
         Ally ally = new Ally("AllyHeart", targetPlayer);
         ally.setPosition(new jogo.framework.math.Vec3(targetX, finalY, targetZ));
+        VoxelBody body = new VoxelBody(0.3f, 0.9f);
+        body.setStepHeight(1f); // sobe um bloco sem saltar, para conseguir seguir o jogador
+        body.warp(targetX, finalY, targetZ);
+        characterMotor.add(body);
+        allyBodies.put(ally, body);
 
         System.out.println("Ally criado em: " + targetX + ", " + finalY + ", " + targetZ);
 
@@ -1,5 +1,7 @@
 package jogo.fastnoise;
 
+import java.util.Arrays;
+
 public class FastNoiseLite {
     public enum NoiseType
     {
@@ -347,6 +349,182 @@ public class FastNoiseLite {
         }
     }
 
+    /// <summary>
+    /// 2D noise on a grid of countX * countY points, starting at (x0, y0) and stepping
+    /// stepX / stepY; out[i * countY + j] = GetNoise(x0 + i * stepX, y0 + j * stepY)
+    /// </summary>
+    /// <remarks>
+    /// Same values as GetNoise, bit for bit, but the noise and fractal type are
+    /// dispatched once per octave instead of once per point
+    /// </remarks>
+    public void GetNoiseGrid(float[] out, /*FNLfloat*/ float x0, /*FNLfloat*/ float y0,
+                             /*FNLfloat*/ float stepX, /*FNLfloat*/ float stepY, int countX, int countY)
+    {
+        int count = countX * countY;
+        /*FNLfloat*/ float[] xs = new /*FNLfloat*/ float[count];
+        /*FNLfloat*/ float[] ys = new /*FNLfloat*/ float[count];
+
+        final /*FNLfloat*/ float SQRT3 = (/*FNLfloat*/ float)1.7320508075688772935274463415059;
+        final /*FNLfloat*/ float F2 = 0.5f * (SQRT3 - 1);
+        boolean skew = mNoiseType == NoiseType.OpenSimplex2 || mNoiseType == NoiseType.OpenSimplex2S;
+        for (int i = 0, p = 0; i < countX; i++)
+        {
+            for (int j = 0; j < countY; j++, p++)
+            {
+                // Same transform as GetNoise(x, y)
+                /*FNLfloat*/ float x = (x0 + i * stepX) * mFrequency;
+                /*FNLfloat*/ float y = (y0 + j * stepY) * mFrequency;
+                if (skew)
+                {
+                    /*FNLfloat*/ float t = (x + y) * F2;
+                    x += t;
+                    y += t;
+                }
+                xs[p] = x;
+                ys[p] = y;
+            }
+        }
+
+        if (mFractalType != FractalType.FBm && mFractalType != FractalType.Ridged && mFractalType != FractalType.PingPong)
+        {
+            GenNoiseBatch(mSeed, xs, ys, out, count);
+            return;
+        }
+        float[] noise = new float[count];
+        float[] amp = new float[count];
+        Arrays.fill(out, 0, count, 0);
+        Arrays.fill(amp, 0, count, mFractalBounding);
+        int seed = mSeed;
+        for (int o = 0; o < mOctaves; o++)
+        {
+            GenNoiseBatch(seed++, xs, ys, noise, count);
+            switch (mFractalType)
+            {
+                case FBm:
+                    for (int p = 0; p < count; p++)
+                    {
+                        out[p] += noise[p] * amp[p];
+                        amp[p] *= Lerp(1.0f, FastMin(noise[p] + 1, 2) * 0.5f, mWeightedStrength);
+                    }
+                    break;
+                default:
+                    FractalStep(noise, out, amp, count);
+                    break;
+            }
+            for (int p = 0; p < count; p++)
+            {
+                xs[p] *= mLacunarity;
+                ys[p] *= mLacunarity;
+                amp[p] *= mGain;
+            }
+        }
+    }
+
+    /// <summary>
+    /// 3D noise on a grid of countX * countY * countZ points, starting at (x0, y0, z0) and
+    /// stepping stepX / stepY / stepZ; out[(i * countY + j) * countZ + k] =
+    /// GetNoise(x0 + i * stepX, y0 + j * stepY, z0 + k * stepZ)
+    /// </summary>
+    /// <remarks>
+    /// Same values as GetNoise, bit for bit, but the noise and fractal type are
+    /// dispatched once per octave instead of once per point
+    /// </remarks>
+    public void GetNoiseGrid(float[] out, /*FNLfloat*/ float x0, /*FNLfloat*/ float y0, /*FNLfloat*/ float z0,
+                             /*FNLfloat*/ float stepX, /*FNLfloat*/ float stepY, /*FNLfloat*/ float stepZ,
+                             int countX, int countY, int countZ)
+    {
+        int count = countX * countY * countZ;
+        /*FNLfloat*/ float[] xs = new /*FNLfloat*/ float[count];
+        /*FNLfloat*/ float[] ys = new /*FNLfloat*/ float[count];
+        /*FNLfloat*/ float[] zs = new /*FNLfloat*/ float[count];
+
+        for (int i = 0, p = 0; i < countX; i++)
+        {
+            for (int j = 0; j < countY; j++)
+            {
+                for (int k = 0; k < countZ; k++, p++)
+                {
+                    // Same transform as GetNoise(x, y, z)
+                    /*FNLfloat*/ float x = (x0 + i * stepX) * mFrequency;
+                    /*FNLfloat*/ float y = (y0 + j * stepY) * mFrequency;
+                    /*FNLfloat*/ float z = (z0 + k * stepZ) * mFrequency;
+                    switch (mTransformType3D)
+                    {
+                        case ImproveXYPlanes:
+                        {
+                            /*FNLfloat*/ float xy = x + y;
+                            /*FNLfloat*/ float s2 = xy * -(/*FNLfloat*/ float)0.211324865405187;
+                            z *= (/*FNLfloat*/ float)0.577350269189626;
+                            x += s2 - z;
+                            y = y + s2 - z;
+                            z += xy * (/*FNLfloat*/ float)0.577350269189626;
+                        }
+                        break;
+                        case ImproveXZPlanes:
+                        {
+                            /*FNLfloat*/ float xz = x + z;
+                            /*FNLfloat*/ float s2 = xz * -(/*FNLfloat*/ float)0.211324865405187;
+                            y *= (/*FNLfloat*/ float)0.577350269189626;
+                            x += s2 - y;
+                            z += s2 - y;
+                            y += xz * (/*FNLfloat*/ float)0.577350269189626;
+                        }
+                        break;
+                        case DefaultOpenSimplex2:
+                        {
+                            final /*FNLfloat*/ float R3 = (/*FNLfloat*/ float)(2.0 / 3.0);
+                            /*FNLfloat*/ float r = (x + y + z) * R3; // Rotation, not skew
+                            x = r - x;
+                            y = r - y;
+                            z = r - z;
+                        }
+                        break;
+                        default:
+                            break;
+                    }
+                    xs[p] = x;
+                    ys[p] = y;
+                    zs[p] = z;
+                }
+            }
+        }
+
+        if (mFractalType != FractalType.FBm && mFractalType != FractalType.Ridged && mFractalType != FractalType.PingPong)
+        {
+            GenNoiseBatch(mSeed, xs, ys, zs, out, count);
+            return;
+        }
+        float[] noise = new float[count];
+        float[] amp = new float[count];
+        Arrays.fill(out, 0, count, 0);
+        Arrays.fill(amp, 0, count, mFractalBounding);
+        int seed = mSeed;
+        for (int o = 0; o < mOctaves; o++)
+        {
+            GenNoiseBatch(seed++, xs, ys, zs, noise, count);
+            switch (mFractalType)
+            {
+                case FBm:
+                    for (int p = 0; p < count; p++)
+                    {
+                        out[p] += noise[p] * amp[p];
+                        amp[p] *= Lerp(1.0f, (noise[p] + 1) * 0.5f, mWeightedStrength);
+                    }
+                    break;
+                default:
+                    FractalStep(noise, out, amp, count);
+                    break;
+            }
+            for (int p = 0; p < count; p++)
+            {
+                xs[p] *= mLacunarity;
+                ys[p] *= mLacunarity;
+                zs[p] *= mLacunarity;
+                amp[p] *= mGain;
+            }
+        }
+    }
+
 
     /// <summary>
     /// 2D warps the input position using current domain warp settings
@@ -675,6 +853,88 @@ public class FastNoiseLite {
     }
 
 
+    // Batch noise gen: one switch per batch, then a tight loop over the points
+
+    private void GenNoiseBatch(int seed, /*FNLfloat*/ float[] xs, /*FNLfloat*/ float[] ys, float[] out, int count)
+    {
+        switch (mNoiseType)
+        {
+            case OpenSimplex2:
+                for (int p = 0; p < count; p++) out[p] = SingleSimplex(seed, xs[p], ys[p]);
+                break;
+            case OpenSimplex2S:
+                for (int p = 0; p < count; p++) out[p] = SingleOpenSimplex2S(seed, xs[p], ys[p]);
+                break;
+            case Cellular:
+                for (int p = 0; p < count; p++) out[p] = SingleCellular(seed, xs[p], ys[p]);
+                break;
+            case Perlin:
+                for (int p = 0; p < count; p++) out[p] = SinglePerlin(seed, xs[p], ys[p]);
+                break;
+            case ValueCubic:
+                for (int p = 0; p < count; p++) out[p] = SingleValueCubic(seed, xs[p], ys[p]);
+                break;
+            case Value:
+                for (int p = 0; p < count; p++) out[p] = SingleValue(seed, xs[p], ys[p]);
+                break;
+            default:
+                Arrays.fill(out, 0, count, 0);
+                break;
+        }
+    }
+
+    private void GenNoiseBatch(int seed, /*FNLfloat*/ float[] xs, /*FNLfloat*/ float[] ys, /*FNLfloat*/ float[] zs, float[] out, int count)
+    {
+        switch (mNoiseType)
+        {
+            case OpenSimplex2:
+                for (int p = 0; p < count; p++) out[p] = SingleOpenSimplex2(seed, xs[p], ys[p], zs[p]);
+                break;
+            case OpenSimplex2S:
+                for (int p = 0; p < count; p++) out[p] = SingleOpenSimplex2S(seed, xs[p], ys[p], zs[p]);
+                break;
+            case Cellular:
+                for (int p = 0; p < count; p++) out[p] = SingleCellular(seed, xs[p], ys[p], zs[p]);
+                break;
+            case Perlin:
+                for (int p = 0; p < count; p++) out[p] = SinglePerlin(seed, xs[p], ys[p], zs[p]);
+                break;
+            case ValueCubic:
+                for (int p = 0; p < count; p++) out[p] = SingleValueCubic(seed, xs[p], ys[p], zs[p]);
+                break;
+            case Value:
+                for (int p = 0; p < count; p++) out[p] = SingleValue(seed, xs[p], ys[p], zs[p]);
+                break;
+            default:
+                Arrays.fill(out, 0, count, 0);
+                break;
+        }
+    }
+
+    // One Ridged or PingPong octave over a batch (same for 2D and 3D)
+    private void FractalStep(float[] noise, float[] sum, float[] amp, int count)
+    {
+        if (mFractalType == FractalType.Ridged)
+        {
+            for (int p = 0; p < count; p++)
+            {
+                float n = FastAbs(noise[p]);
+                sum[p] += (n * -2 + 1) * amp[p];
+                amp[p] *= Lerp(1.0f, 1 - n, mWeightedStrength);
+            }
+        }
+        else
+        {
+            for (int p = 0; p < count; p++)
+            {
+                float n = PingPong((noise[p] + 1) * mPingPongStrength);
+                sum[p] += (n - 0.5f) * 2 * amp[p];
+                amp[p] *= Lerp(1.0f, n, mWeightedStrength);
+            }
+        }
+    }
+
+
     // Noise Coordinate Transforms (frequency, and possible skew or rotation)
 
     private void UpdateTransformType3D()
@@ -13,6 +13,8 @@ public abstract class Character extends GameObject {
     protected int maxHealth = 100;
     protected float speed = 3.0f;
     protected boolean alive = true;
+    // Velocidade horizontal pretendida (m/s); quem move o corpo é o motor de personagens do mundo
+    protected float walkX, walkZ;
 
     /**
      *  Método abstrato para IA - cada NPC implementa de forma diferente.
@@ -57,6 +59,12 @@ public abstract class Character extends GameObject {
     }
     public int getMaxHealth() { return maxHealth; }
     public float getSpeed() { return speed; }
+    public void setWalkDirection(float x, float z) {
+        this.walkX = x;
+        this.walkZ = z;
+    }
+    public float getWalkX() { return walkX; }
+    public float getWalkZ() { return walkZ; }
     public boolean isAlive() { return alive; }
 
     @Override
@@ -15,21 +15,20 @@ public class FollowStrategy implements AIStrategy {
         Vector3f npcPos = new Vector3f(npcPosRaw.x, npcPosRaw.y, npcPosRaw.z);
         Vector3f playerPos = new Vector3f(playerPosRaw.x, playerPosRaw.y, playerPosRaw.z);
 
-        // Vetor direção (Player - NPC)
+        // Vetor direção (Player - NPC), só no plano: a altura fica por conta do motor
+        // (gravidade e degraus), por isso o aliado já não atravessa o terreno
         Vector3f direction = playerPos.subtract(npcPos);
+        direction.y = 0;
         float distance = direction.length();
 
         // Lógica: Seguir se estiver longe (> 3), parar se estiver perto
         if (distance > 3.0f) {
             direction.normalizeLocal(); // Normalizar para ter comprimento 1
 
-            // Calcular nova posição: Posição Atual + (Direção * Velocidade * DeltaTime)
-            Vector3f moveVec = direction.mult(npc.getSpeed() * tpf);
-            Vector3f newPos = npcPos.add(moveVec);
-
-            // Atualizar a posição no objeto Ally (convertendo de volta para Vec3)
-            npc.setPosition(new Vec3(newPos.x, newPos.y, newPos.z));
+            // Velocidade pretendida: Direção * Velocidade; o motor aplica-a a cada tick
+            npc.setWalkDirection(direction.x * npc.getSpeed(), direction.z * npc.getSpeed());
+        } else {
+            npc.setWalkDirection(0, 0); // Perto: fica parado
         }
-        // Se distance <= 3, ele simplesmente não atualiza a posição (fica parado)
     }
 }
\ No newline at end of file
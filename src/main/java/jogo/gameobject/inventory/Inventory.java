@@ -1,6 +1,7 @@
 package jogo.gameobject.inventory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -171,4 +172,46 @@ public class Inventory {
     public boolean isEmpty() {
         return slots.stream().allMatch(InventorySlot::isEmpty);
     }
+
+    /**
+     * Copia nome e quantidade de cada slot, para gravar noutra thread sem tocar nos Items.
+     */
+    public Snapshot snapshot() {
+        String[] names = new String[slots.size()];
+        int[] quantities = new int[slots.size()];
+        for (int i = 0; i < slots.size(); i++) {
+            InventorySlot slot = slots.get(i);
+            if (slot.isEmpty()) continue;
+            names[i] = slot.getItem().getName();
+            quantities[i] = slot.getQuantity();
+        }
+        return new Snapshot(names, quantities);
+    }
+
+    /**
+     * Conteúdo imutável do inventário num dado momento (nome null = slot vazio).
+     */
+    public static final class Snapshot {
+        private final String[] names;
+        private final int[] quantities;
+
+        private Snapshot(String[] names, int[] quantities) {
+            this.names = names;
+            this.quantities = quantities;
+        }
+
+        public int size() { return names.length; }
+        public String getName(int slot) { return names[slot]; }
+        public int getQuantity(int slot) { return quantities[slot]; }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Snapshot s && Arrays.equals(names, s.names) && Arrays.equals(quantities, s.quantities);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(names) + Arrays.hashCode(quantities);
+        }
+    }
 }
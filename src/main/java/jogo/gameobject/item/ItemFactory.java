@@ -41,6 +41,11 @@ public class ItemFactory {
      * Útil para crafting system.
      */
     public static Item createFromName(String itemName, int quantity) {
+        if (itemName.startsWith("FlowerItem - ")) {
+            FlowerItem flower = new FlowerItem(itemName.substring("FlowerItem - ".length()));
+            flower.setQuantity(quantity);
+            return flower;
+        }
         switch (itemName) {
             case "Stone":
                 return new StoneItem(quantity);
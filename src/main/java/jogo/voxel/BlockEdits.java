@@ -0,0 +1,41 @@
+package jogo.voxel;
+
+import java.util.Arrays;
+
+/**
+ * A batch of block writes (x, y, z, id) for {@link VoxelWorld#applyEdits}, which applies
+ * them chunk by chunk and marks each chunk dirty once. When one block appears twice, the
+ * later entry wins. {@link #clear} keeps the arrays, so one list can be reused.
+ */
+public final class BlockEdits {
+    private int[] data = new int[64];   // x, y, z, id per edit
+    private int size;
+
+    public BlockEdits add(int x, int y, int z, int id) {
+        if (size * 4 == data.length) data = Arrays.copyOf(data, data.length * 2);
+        int i = size * 4;
+        data[i] = x;
+        data[i + 1] = y;
+        data[i + 2] = z;
+        data[i + 3] = id;
+        size++;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    int x(int i) { return data[i * 4]; }
+    int y(int i) { return data[i * 4 + 1]; }
+    int z(int i) { return data[i * 4 + 2]; }
+    int id(int i) { return data[i * 4 + 3]; }
+}
@@ -0,0 +1,185 @@
+package jogo.voxel;
+
+import com.jme3.asset.AssetManager;
+import com.jme3.material.MatParamTexture;
+import com.jme3.material.Material;
+import com.jme3.material.RenderState;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.TextureArray;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.texture.image.ImageRaster;
+import com.jme3.util.BufferUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared Materials for the block types of a {@link VoxelPalette}: one lit and one unlit
+ * Material per type, created on first use and reused by every chunk. Render modes are applied
+ * to these shared instances, so switching wireframe or culling touches each block type once.
+ * Render thread only.
+ * <p>
+ * For single-draw chunks there is also one {@link #getArrayMaterial texture-array Material}
+ * covering every block type, where the block id selects the array layer.
+ */
+public class BlockMaterials {
+    private final VoxelPalette palette;
+    private Material[] lit = new Material[0];
+    private Material[] unlit = new Material[0];
+
+    private boolean litMode = true;
+    private boolean wireframe = false;
+    private boolean culling = true;
+
+    // Texture-array material, shared by all chunks in texture-array mode
+    public static final int ARRAY_LAYER_SIZE = 256;
+    private static final String ARRAY_MATDEF = "MatDefs/VoxelArray.j3md";
+    private Material arrayMaterial;
+    private final Vector3f sunDirection = new Vector3f(-0.35f, -1.3f, -0.25f).normalizeLocal();
+    private final ColorRGBA sunColor = ColorRGBA.White.mult(0.85f);
+    private final ColorRGBA ambientColor = ColorRGBA.White.mult(0.2f);
+
+    BlockMaterials(VoxelPalette palette) {
+        this.palette = palette;
+    }
+
+    /**
+     * Material for the block type in the current render mode. Block types are asked for their
+     * Material once, without a position, so position-dependent materials are not supported.
+     */
+    public Material get(byte id, AssetManager assetManager) {
+        return get(Byte.toUnsignedInt(id), assetManager);
+    }
+
+    public Material get(int idx, AssetManager assetManager) {
+        if (idx >= lit.length) grow(palette.size());
+        Material m = litMode ? lit[idx] : unlit[idx];
+        if (m == null) {
+            m = litMode ? createLit(idx, assetManager) : createUnlit(idx, assetManager);
+            if (m == null) return null; // e.g. air
+            applyRenderFlags(m);
+            if (litMode) lit[idx] = m; else unlit[idx] = m;
+        }
+        return m;
+    }
+
+    private Material createLit(int id, AssetManager assetManager) {
+        return palette.get(id).getMaterial(assetManager);
+    }
+
+    private Material createUnlit(int id, AssetManager assetManager) {
+        // Reuse the texture of the lit variant on an Unshaded material
+        Material litMat = lit[id];
+        if (litMat == null) litMat = createLit(id, assetManager);
+        if (litMat == null) return null;
+        MatParamTexture tex = litMat.getTextureParam("DiffuseMap");
+        if (tex == null) tex = litMat.getTextureParam("ColorMap");
+        Material m = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
+        if (tex != null) m.setTexture("ColorMap", tex.getTextureValue());
+        return m;
+    }
+
+    /**
+     * One Material for all block types: each type's diffuse texture is resampled into a layer of
+     * a {@link TextureArray} (layer = block id) and drawn with the VoxelArray MatDef, which does
+     * a simple sun + ambient lambert instead of the full Lighting.j3md model.
+     */
+    public Material getArrayMaterial(AssetManager assetManager) {
+        if (arrayMaterial == null) {
+            TextureArray array = new TextureArray(buildLayers(assetManager));
+            array.setMagFilter(Texture.MagFilter.Nearest);
+            array.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+            array.setWrap(Texture.WrapMode.Repeat);
+            arrayMaterial = new Material(assetManager, ARRAY_MATDEF);
+            arrayMaterial.setTexture("ColorMap", array);
+            applyLighting(arrayMaterial);
+            applyRenderFlags(arrayMaterial);
+        }
+        return arrayMaterial;
+    }
+
+    private List<Image> buildLayers(AssetManager assetManager) {
+        List<Image> layers = new ArrayList<>(palette.size());
+        for (int i = 0; i < palette.size(); i++) {
+            Image layer = new Image(Image.Format.RGBA8, ARRAY_LAYER_SIZE, ARRAY_LAYER_SIZE,
+                    BufferUtils.createByteBuffer(ARRAY_LAYER_SIZE * ARRAY_LAYER_SIZE * 4), ColorSpace.sRGB);
+            Material m = createLit(i, assetManager);
+            MatParamTexture tex = m == null ? null : m.getTextureParam("DiffuseMap");
+            if (tex != null) resampleInto(tex.getTextureValue().getImage(), layer);
+            layers.add(layer);
+        }
+        return layers;
+    }
+
+    // Nearest-neighbour resample, so every layer has the same size and format
+    private static void resampleInto(Image src, Image dst) {
+        ImageRaster in = ImageRaster.create(src);
+        ImageRaster out = ImageRaster.create(dst);
+        ColorRGBA c = new ColorRGBA();
+        for (int y = 0; y < dst.getHeight(); y++) {
+            int sy = y * src.getHeight() / dst.getHeight();
+            for (int x = 0; x < dst.getWidth(); x++) {
+                in.getPixel(x * src.getWidth() / dst.getWidth(), sy, c);
+                out.setPixel(x, y, c);
+            }
+        }
+    }
+
+    /** Light used by the texture-array material; mirrors the scene's sun and ambient lights. */
+    public void setLighting(Vector3f sunDirection, ColorRGBA sunColor, ColorRGBA ambientColor) {
+        this.sunDirection.set(sunDirection).normalizeLocal();
+        this.sunColor.set(sunColor);
+        this.ambientColor.set(ambientColor);
+        if (arrayMaterial != null) applyLighting(arrayMaterial);
+    }
+
+    private void applyLighting(Material m) {
+        m.setVector3("SunDirection", sunDirection);
+        m.setColor("SunColor", sunColor);
+        m.setColor("AmbientColor", ambientColor);
+        m.setBoolean("Lit", litMode);
+    }
+
+    private void grow(int size) {
+        Material[] l = new Material[size];
+        Material[] u = new Material[size];
+        System.arraycopy(lit, 0, l, 0, lit.length);
+        System.arraycopy(unlit, 0, u, 0, unlit.length);
+        lit = l;
+        unlit = u;
+    }
+
+    public boolean isLit() { return litMode; }
+    public boolean isWireframe() { return wireframe; }
+    public boolean isCulling() { return culling; }
+
+    /** Selects which variant {@link #get} returns; geometries must be re-assigned by the caller. */
+    public void setLit(boolean lit) {
+        this.litMode = lit;
+        if (arrayMaterial != null) arrayMaterial.setBoolean("Lit", lit);
+    }
+
+    public void setWireframe(boolean wireframe) {
+        this.wireframe = wireframe;
+        applyRenderFlagsToAll();
+    }
+
+    public void setCulling(boolean culling) {
+        this.culling = culling;
+        applyRenderFlagsToAll();
+    }
+
+    private void applyRenderFlagsToAll() {
+        for (Material m : lit) if (m != null) applyRenderFlags(m);
+        for (Material m : unlit) if (m != null) applyRenderFlags(m);
+        if (arrayMaterial != null) applyRenderFlags(arrayMaterial);
+    }
+
+    private void applyRenderFlags(Material m) {
+        m.getAdditionalRenderState().setFaceCullMode(culling ? RenderState.FaceCullMode.Back : RenderState.FaceCullMode.Off);
+        m.getAdditionalRenderState().setWireframe(wireframe);
+    }
+}
@@ -4,144 +4,340 @@ import com.jme3.asset.AssetManager;
 import com.jme3.bullet.PhysicsSpace;
 import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.control.RigidBodyControl;
-import com.jme3.bullet.util.CollisionShapeFactory;
 import com.jme3.material.Material;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.Mesh;
 import com.jme3.scene.Node;
-import jogo.framework.math.Vec3;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /**
  * Represents a chunk of the voxel world (e.g., 16x16x16 blocks).
+ * An all-air chunk keeps no voxel storage, and its scene Node is only created once the
+ * chunk has something to show.
  */
 public class Chunk {
     public static final int SIZE = 16;
+    private static final String BLOCK_ID_KEY = "blockId";
     private final int chunkX, chunkY, chunkZ;
-    private final byte[][][] vox;
-    private final Node node;
+    private ChunkStorage storage;   // null = all air
+    private Node node;              // created on first mesh
 
     private boolean dirty = true;
+    // Edited after generation (or loaded from disk); only modified chunks are saved
+    private boolean modified = false;
+    // Edited since it was last handed to the save queue
+    private boolean unsaved = false;
+    // Bumped on every edit; lets an async mesh result detect that it was built from stale data
+    private int version = 0;
+    // Told when the chunk goes from clean to dirty, so the world can queue it without scanning
+    private Consumer<Chunk> dirtyListener;
 
     private RigidBodyControl rigidBody;
+    private CollisionShape physicsShape;   // last shape given to the body, maybe not applied yet
+    private int physicsVersion;   // version the body's shape was built from
 
     public Chunk(int chunkX, int chunkY, int chunkZ) {
         this.chunkX = chunkX;
         this.chunkY = chunkY;
         this.chunkZ = chunkZ;
-        this.vox = new byte[SIZE][SIZE][SIZE];
-        this.node = new Node("Chunk_" + chunkX + "," + chunkY + "," + chunkZ);
     }
 
-    public Node getNode() { return node; }
-    public byte get(int x, int y, int z) { return vox[x][y][z]; }
-    public void set(int x, int y, int z, byte id) { vox[x][y][z] = id; }
+    public Node getNode() {
+        if (node == null) node = new Node("Chunk_" + chunkX + "," + chunkY + "," + chunkZ);
+        return node;
+    }
+
+    /** Geometries currently attached to this chunk's node; 0 if it never had a mesh. */
+    public int getGeometryCount() { return node == null ? 0 : node.getQuantity(); }
+    public byte get(int x, int y, int z) { return (byte) getId(x, y, z); }
+    public void set(int x, int y, int z, byte id) { setId(x, y, z, Byte.toUnsignedInt(id)); }
+    /** Block id at local coordinates; unlike {@link #get} this covers ids above 255. */
+    public int getId(int x, int y, int z) {
+        return storage == null ? VoxelPalette.AIR_ID : storage.get(ChunkStorage.index(x, y, z));
+    }
+    public void setId(int x, int y, int z, int id) {
+        if (storage == null) {
+            if (id == VoxelPalette.AIR_ID) return;
+            storage = new ChunkStorage(VoxelPalette.AIR_ID);
+        }
+        storage.set(ChunkStorage.index(x, y, z), id);
+        if (storage.getUniformId() == VoxelPalette.AIR_ID) storage = null;
+    }
+    /** Voxel storage, or null while the chunk is all air. */
+    ChunkStorage getStorage() { return storage; }
+
+    /**
+     * Sets every voxel from {@code ids} (chunk storage order) in one go, leaving the dirty and
+     * modified flags to the caller: generation of fresh chunks and bulk edits.
+     */
+    void setIds(int[] ids) {
+        ChunkStorage s = ChunkStorage.of(ids);
+        storage = s.getUniformId() == VoxelPalette.AIR_ID ? null : s;
+    }
+
+    /** Sets every voxel to {@code id}; flags are left to the caller, as in {@link #setIds}. */
+    void fill(int id) {
+        storage = id == VoxelPalette.AIR_ID ? null : new ChunkStorage(id);
+    }
+
+    /** Voxels holding {@code id}. */
+    int count(int id) {
+        if (storage == null) return id == VoxelPalette.AIR_ID ? ChunkStorage.VOLUME : 0;
+        return storage.count(id);
+    }
+
+    /** Unpacks every voxel into {@code dst}, in chunk storage order. */
+    void copyIds(int[] dst) {
+        if (storage == null) Arrays.fill(dst, 0, ChunkStorage.VOLUME, VoxelPalette.AIR_ID);
+        else storage.copyTo(dst);
+    }
+
+    /** Replaces every voxel, e.g. with a chunk loaded from disk. */
+    void setStorage(ChunkStorage storage) {
+        this.storage = storage == null || storage.getUniformId() == VoxelPalette.AIR_ID ? null : storage;
+        modified = true;
+        markDirty();
+    }
+
+    /** True if the chunk holds nothing but air (and therefore no storage). */
+    public boolean isEmpty() { return storage == null; }
+
+    /** Id shared by every voxel of the chunk, or -1 if it holds more than one type. */
+    public int getUniformId() { return storage == null ? VoxelPalette.AIR_ID : storage.getUniformId(); }
+
+    public boolean hasCollision() { return rigidBody != null; }
+    /** True if the chunk has a body whose shape predates the latest edit. */
+    boolean isPhysicsStale() { return rigidBody != null && physicsVersion != version; }
+
+    /**
+     * Drops this chunk's geometries, collision body and Node, for chunks that need no mesh.
+     * Render thread only.
+     */
+    public void releaseMesh(PhysicsSpace space) {
+        releaseMesh(space, Runnable::run);
+    }
+
+    /** As {@link #releaseMesh(PhysicsSpace)}, with the calls into the space run by {@code physics}. */
+    void releaseMesh(PhysicsSpace space, Executor physics) {
+        if (node == null) return;
+        node.detachAllChildren();
+        if (space != null) removePhysics(space, physics);
+        node.removeFromParent();
+        node = null;
+    }
     public int getChunkX() { return chunkX; }
     public int getChunkY() { return chunkY; }
     public int getChunkZ() { return chunkZ; }
 
-    public void markDirty() { dirty = true; }
+    public void markDirty() {
+        if (!dirty) {
+            dirty = true;
+            if (dirtyListener != null) dirtyListener.accept(this);
+        }
+        version++;
+    }
+    void setDirtyListener(Consumer<Chunk> listener) { this.dirtyListener = listener; }
+    public int getVersion() { return version; }
     public boolean isDirty() { return dirty; }
     public void clearDirty() { dirty = false; }
+    /** True if the chunk differs from what the generator makes, so it has to be saved. */
+    public boolean isModified() { return modified; }
+    void markModified() { modified = true; }
+    /** Flags the chunk as waiting for a save; false if it already was. */
+    boolean markUnsaved() {
+        if (unsaved) return false;
+        unsaved = true;
+        return true;
+    }
+    boolean isUnsaved() { return unsaved; }
+    void markSaved() { unsaved = false; }
+
+    // Per-thread scratch builders, indexed by block id, reused across rebuilds
+    private static final ThreadLocal<MeshBuilder[]> SCRATCH_BUILDERS = ThreadLocal.withInitial(() -> new MeshBuilder[0]);
+
+    private static MeshBuilder[] scratchBuilders(int count) {
+        MeshBuilder[] builders = SCRATCH_BUILDERS.get();
+        if (builders.length < count) {
+            MeshBuilder[] grown = new MeshBuilder[count];
+            System.arraycopy(builders, 0, grown, 0, builders.length);
+            for (int i = builders.length; i < count; i++) grown[i] = new MeshBuilder();
+            builders = grown;
+            SCRATCH_BUILDERS.set(builders);
+        }
+        return builders;
+    }
+
+    // Per-thread builder for texture-array meshes (all block types in one mesh)
+    private static final ThreadLocal<MeshBuilder> ARRAY_BUILDER = ThreadLocal.withInitial(() -> {
+        MeshBuilder mb = new MeshBuilder();
+        mb.setTextureLayers(true);
+        return mb;
+    });
 
-    // Build and attach mesh for this chunk
+    private static final ThreadLocal<GreedyMesher> GREEDY_MESHER = ThreadLocal.withInitial(GreedyMesher::new);
+
+    // Build and attach mesh for this chunk (one quad per exposed face, neighbours treated as air)
     public void buildMesh(AssetManager assetManager, VoxelPalette palette) {
-        long start = System.nanoTime();
-        node.detachAllChildren();
-        Map<Byte, MeshBuilder> builders = new HashMap<>();
-        for (int i = 0; i < palette.size(); i++) {
-            if (i == VoxelPalette.AIR_ID) continue;
-            MeshBuilder mb = new MeshBuilder();
+        buildMesh(assetManager, palette, ChunkSnapshot.capture(this), false);
+    }
+
+    /**
+     * Build and attach mesh for this chunk.
+     * @param snapshot this chunk's voxels plus the neighbour border, used for face culling
+     * @param greedy merge coplanar faces of the same block type into larger quads
+     *               (textures tile per block, but the per-block UV randomization is lost)
+     */
+    public void buildMesh(AssetManager assetManager, VoxelPalette palette, ChunkSnapshot snapshot, boolean greedy) {
+        applyMeshes(buildMeshes(snapshot, palette, greedy), assetManager, palette);
+    }
+
+    /**
+     * Builds the vertex data for a snapshot, one Mesh per block id (null where the type has no
+     * visible faces). Touches neither the chunk nor the scene graph, so it may run on any thread.
+     */
+    public static Mesh[] buildMeshes(ChunkSnapshot snapshot, VoxelPalette palette, boolean greedy) {
+        int typeCount = palette.size();
+        MeshBuilder[] builders = scratchBuilders(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            builders[i].clear();
             // Randomize UVs only for dirt to add variation without per-block materials
-            mb.setRandomizeUV(true);
-            builders.put((byte)i, mb);
+            builders[i].setRandomizeUV(true);
+        }
+        if (greedy) {
+            GREEDY_MESHER.get().mesh(snapshot, palette, builders);
+        } else {
+            addVoxelFaces(snapshot, palette, builders);
+        }
+        Mesh[] meshes = new Mesh[typeCount];
+        for (int i = 0; i < typeCount; i++) {
+            if (i == VoxelPalette.AIR_ID || builders[i].isEmpty()) continue;
+            meshes[i] = builders[i].build();
         }
-        // Track first block position for each type
-        Map<Byte, Vec3> firstBlockPos = new HashMap<>();
+        return meshes;
+    }
+
+    /**
+     * Builds all block types of a snapshot into a single mesh whose TexCoord is (u, v, layer),
+     * with the block id as layer, for the texture-array material. Returns null if nothing is
+     * visible. May run on any thread.
+     */
+    public static Mesh buildArrayMesh(ChunkSnapshot snapshot, VoxelPalette palette, boolean greedy) {
+        MeshBuilder builder = ARRAY_BUILDER.get();
+        builder.clear();
+        MeshBuilder[] builders = new MeshBuilder[palette.size()];
+        Arrays.fill(builders, builder);
+        if (greedy) {
+            GREEDY_MESHER.get().mesh(snapshot, palette, builders);
+        } else {
+            addVoxelFaces(snapshot, palette, builders);
+        }
+        return builder.isEmpty() ? null : builder.build();
+    }
+
+    /** Replaces this chunk's geometries with one texture-array geometry. Render thread only. */
+    public void applyArrayMesh(Mesh mesh, Material material) {
+        Node node = getNode();
+        node.detachAllChildren();
+        if (mesh == null) return;
+        Geometry g = new Geometry("chunk_"+chunkX+"_"+chunkY+"_"+chunkZ, mesh);
+        g.setMaterial(material);
+        node.attachChild(g);
+    }
+
+    /** Replaces this chunk's geometries with the given meshes. Render thread only. */
+    public void applyMeshes(Mesh[] meshes, AssetManager assetManager, VoxelPalette palette) {
+        Node node = getNode();
+        node.detachAllChildren();
+        for (int i = 0; i < meshes.length; i++) {
+            if (meshes[i] == null) continue;
+            Geometry g = new Geometry("chunk_"+chunkX+"_"+chunkY+"_"+chunkZ+"_"+i, meshes[i]);
+            g.setUserData(BLOCK_ID_KEY, i);
+            Material mat = palette.getMaterials().get(i, assetManager);
+            g.setMaterial(mat);
+            node.attachChild(g);
+        }
+    }
+
+    /** Re-assigns the palette's current shared Materials, e.g. after switching lit/unlit. */
+    public void refreshMaterials(AssetManager assetManager, VoxelPalette palette) {
+        if (node == null) return;
+        for (int i = 0; i < node.getQuantity(); i++) {
+            if (node.getChild(i) instanceof Geometry g) {
+                Integer id = g.getUserData(BLOCK_ID_KEY);
+                if (id != null) g.setMaterial(palette.getMaterials().get(id.intValue(), assetManager));
+            }
+        }
+    }
+
+    private static void addVoxelFaces(ChunkSnapshot snap, VoxelPalette palette, MeshBuilder[] builders) {
         for (int x = 0; x < SIZE; x++) {
             for (int y = 0; y < SIZE; y++) {
                 for (int z = 0; z < SIZE; z++) {
-                    byte id = vox[x][y][z];
+                    int i = ChunkSnapshot.index(x, y, z);
+                    int id = snap.getAt(i);
                     if (id == VoxelPalette.AIR_ID) continue;
-                    if (!palette.get(id).isSolid()) continue;
-                    MeshBuilder builder = builders.get(id);
-                    int wx = chunkX * SIZE + x;
-                    int wy = chunkY * SIZE + y;
-                    int wz = chunkZ * SIZE + z;
-                    // Only add faces if neighbor is air or out of bounds
-                    if (!isSolid(wx+1,wy,wz,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.PX);
-                    if (!isSolid(wx-1,wy,wz,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.NX);
-                    if (!isSolid(wx,wy+1,wz,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.PY);
-                    if (!isSolid(wx,wy-1,wz,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.NY);
-                    if (!isSolid(wx,wy,wz+1,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.PZ);
-                    if (!isSolid(wx,wy,wz-1,palette)) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.NZ);
-                    if (!firstBlockPos.containsKey(id)) firstBlockPos.put(id, new Vec3(wx, wy, wz));
+                    if (!palette.isSolid(id)) continue;
+                    MeshBuilder builder = builders[id];
+                    builder.setLayer(id);
+                    int wx = snap.getChunkX() * SIZE + x;
+                    int wy = snap.getChunkY() * SIZE + y;
+                    int wz = snap.getChunkZ() * SIZE + z;
+                    // Only add faces if neighbor (possibly in the next chunk) is not solid
+                    if (!palette.isSolid(snap.getAt(i + ChunkSnapshot.STEP_X))) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.PX);
+                    if (!palette.isSolid(snap.getAt(i - ChunkSnapshot.STEP_X))) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.NX);
+                    if (!palette.isSolid(snap.getAt(i + ChunkSnapshot.STEP_Y))) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.PY);
+                    if (!palette.isSolid(snap.getAt(i - ChunkSnapshot.STEP_Y))) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.NY);
+                    if (!palette.isSolid(snap.getAt(i + ChunkSnapshot.STEP_Z))) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.PZ);
+                    if (!palette.isSolid(snap.getAt(i - ChunkSnapshot.STEP_Z))) builder.addVoxelFace(wx,wy,wz, MeshBuilder.Face.NZ);
                 }
             }
         }
-        int geomCount = 0;
-        for (Map.Entry<Byte, MeshBuilder> entry : builders.entrySet()) {
-            MeshBuilder meshBuilder = entry.getValue();
-            Mesh mesh = meshBuilder.build();
-            if (mesh.getTriangleCount() > 0) {
-                byte id = entry.getKey();
-                Geometry g = new Geometry("chunk_"+chunkX+"_"+chunkY+"_"+chunkZ+"_"+id, mesh);
-                Vec3 blockPos = firstBlockPos.getOrDefault(id, new Vec3(chunkX*SIZE, chunkY*SIZE, chunkZ*SIZE));
-                Material mat = palette.get(id).getMaterial(assetManager, blockPos);
-                g.setMaterial(mat);
-                node.attachChild(g);
-                geomCount++;
-            }
-        }
-        long end = System.nanoTime();
-        System.out.println("Chunk ["+chunkX+","+chunkY+","+chunkZ+"] mesh built in " + ((end-start)/1_000_000.0) + " ms, geometries: " + geomCount);
     }
 
     /**
-     * Updates the physics control for this chunk. Call after mesh rebuild.
+     * Gives this chunk a static body with {@code shape}, built from its current voxels by
+     * {@link ChunkCollider}, or none if the shape is null or the chunk has no geometry.
+     * An existing body keeps its place in the space and only swaps shapes. Returns false if
+     * nothing changed because the body already has this shape.
+     * <p>
+     * The calls into the space (add, remove, shape swap) go through {@code physics}, which
+     * may run them later on the physics thread; the chunk's own view of its body changes
+     * at once.
      */
-    public void updatePhysics(PhysicsSpace space) {
+    boolean updatePhysics(PhysicsSpace space, CollisionShape shape, Executor physics) {
+        if (node == null || node.getQuantity() == 0) shape = null; // Only add if chunk has geometry
+        physicsVersion = version;
+        if (rigidBody != null && physicsShape == shape) return false;
+        if (shape == null) return removePhysics(space, physics);
+        CollisionShape newShape = shape;
+        physicsShape = shape;
         if (rigidBody != null) {
-            System.out.println("Removing old RigidBodyControl for chunk ["+chunkX+","+chunkY+","+chunkZ+"]");
-            space.remove(rigidBody);
-            node.removeControl(rigidBody);
-            rigidBody = null;
+            RigidBodyControl body = rigidBody;
+            physics.execute(() -> body.setCollisionShape(newShape));
+            return true;
         }
-        if (node.getQuantity() > 0) { // Only add if chunk has geometry
-            // Ensure node is attached to a parent (world node)
-            if (node.getParent() == null) {
-                System.out.println("Warning: Chunk node ["+chunkX+","+chunkY+","+chunkZ+"] not attached to world node before physics update!");
-            }
-            // Clone meshes for collision shape to avoid Bullet caching issues
-            Node tempNode = node.clone(false); // shallow clone
-            for (int i = 0; i < node.getQuantity(); i++) {
-                if (node.getChild(i) instanceof Geometry) {
-                    Geometry g = (Geometry) node.getChild(i);
-                    Geometry gClone = g.clone(false);
-                    gClone.setMesh(g.getMesh().deepClone());
-                    tempNode.attachChild(gClone);
-                }
-            }
-            CollisionShape shape = CollisionShapeFactory.createMeshShape(tempNode);
-            rigidBody = new RigidBodyControl(shape, 0f);
-            node.addControl(rigidBody);
-            space.add(rigidBody);
-            System.out.println("Added new RigidBodyControl for chunk ["+chunkX+","+chunkY+","+chunkZ+"]");
+        // Ensure node is attached to a parent (world node)
+        if (node.getParent() == null) {
+            System.out.println("Warning: Chunk node ["+chunkX+","+chunkY+","+chunkZ+"] not attached to world node before physics update!");
         }
+        RigidBodyControl body = new RigidBodyControl(shape, 0f);
+        rigidBody = body;
+        node.addControl(body);   // places the body at the node; it is not in the space yet
+        physics.execute(() -> space.add(body));
+        return true;
     }
 
-    // Helper for solid check in world coordinates
-    private boolean isSolid(int wx, int wy, int wz, VoxelPalette palette) {
-        if (wx < 0 || wy < 0 || wz < 0) return false;
-        int max = SIZE * 1000; // arbitrary large world limit
-        if (wx >= max || wy >= max || wz >= max) return false;
-        int cx = wx / SIZE, cy = wy / SIZE, cz = wz / SIZE;
-        int lx = wx % SIZE, ly = wy % SIZE, lz = wz % SIZE;
-        if (cx != chunkX || cy != chunkY || cz != chunkZ) return false; // only check within this chunk
-        if (lx < 0 || ly < 0 || lz < 0 || lx >= SIZE || ly >= SIZE || lz >= SIZE) return false;
-        byte id = vox[lx][ly][lz];
-        return id != VoxelPalette.AIR_ID && palette.get(id).isSolid();
+    /** Drops the chunk's body, if it has one; false if it had none. */
+    boolean removePhysics(PhysicsSpace space, Executor physics) {
+        if (rigidBody == null) return false;
+        RigidBodyControl body = rigidBody;
+        physics.execute(() -> space.remove(body));
+        node.removeControl(body);
+        rigidBody = null;
+        physicsShape = null;
+        return true;
     }
 }
@@ -0,0 +1,82 @@
+package jogo.voxel;
+
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+
+/**
+ * Collision shape of a chunk built from its voxels instead of its render mesh: the solid
+ * voxels are merged greedily into boxes (first along z, then x, then y) and the boxes go
+ * into one {@link CompoundCollisionShape}. A terrain chunk needs a few dozen boxes where the
+ * mesh has thousands of triangles, so building is a single pass over the chunk and Bullet
+ * has far less to test against a character's capsule.
+ * <p>
+ * Box shapes are shared by size (16 x 16 x 16 possibilities), so chunks add no native box
+ * of their own. Render thread only.
+ */
+final class ChunkCollider {
+    private static final int S = Chunk.SIZE;
+
+    private static final BoxCollisionShape[] BOXES = new BoxCollisionShape[S * S * S];
+    private static final int[] IDS = new int[ChunkStorage.VOLUME];
+    private static final boolean[] OPEN = new boolean[ChunkStorage.VOLUME];   // solid, not in a box yet
+
+    private ChunkCollider() { }
+
+    /** Boxes covering every solid voxel of the chunk, positioned in world space; null if it has none. */
+    static CompoundCollisionShape build(Chunk chunk, VoxelPalette palette) {
+        int uniform = chunk.getUniformId();
+        if (uniform >= 0 && !palette.isSolid(uniform)) return null;
+        float bx = chunk.getChunkX() * S, by = chunk.getChunkY() * S, bz = chunk.getChunkZ() * S;
+        if (uniform >= 0) {
+            CompoundCollisionShape whole = new CompoundCollisionShape(1);
+            whole.addChildShape(box(S, S, S), bx + S / 2f, by + S / 2f, bz + S / 2f);
+            return whole;
+        }
+        chunk.copyIds(IDS);
+        for (int i = 0; i < IDS.length; i++) OPEN[i] = palette.isSolid(IDS[i]);
+
+        CompoundCollisionShape shape = null;
+        for (int x = 0; x < S; x++) {
+            for (int y = 0; y < S; y++) {
+                for (int z = 0; z < S; z++) {
+                    if (!OPEN[ChunkStorage.index(x, y, z)]) continue;
+                    int z1 = z;
+                    while (z1 + 1 < S && OPEN[ChunkStorage.index(x, y, z1 + 1)]) z1++;
+                    int x1 = x;
+                    while (x1 + 1 < S && open(x1 + 1, x1 + 1, y, z, z1)) x1++;
+                    int y1 = y;
+                    while (y1 + 1 < S && open(x, x1, y1 + 1, z, z1)) y1++;
+                    for (int i = x; i <= x1; i++) {
+                        for (int j = y; j <= y1; j++) {
+                            for (int k = z; k <= z1; k++) OPEN[ChunkStorage.index(i, j, k)] = false;
+                        }
+                    }
+                    int dx = x1 - x + 1, dy = y1 - y + 1, dz = z1 - z + 1;
+                    if (shape == null) shape = new CompoundCollisionShape();
+                    shape.addChildShape(box(dx, dy, dz), bx + x + dx / 2f, by + y + dy / 2f, bz + z + dz / 2f);
+                }
+            }
+        }
+        return shape;
+    }
+
+    // Whether every voxel in rows x0..x1 at height y, z0..z1, is still open
+    private static boolean open(int x0, int x1, int y, int z0, int z1) {
+        for (int x = x0; x <= x1; x++) {
+            for (int z = z0; z <= z1; z++) {
+                if (!OPEN[ChunkStorage.index(x, y, z)]) return false;
+            }
+        }
+        return true;
+    }
+
+    private static BoxCollisionShape box(int dx, int dy, int dz) {
+        int key = ((dx - 1) * S + dy - 1) * S + dz - 1;
+        BoxCollisionShape box = BOXES[key];
+        if (box == null) {
+            box = new BoxCollisionShape(dx / 2f, dy / 2f, dz / 2f);
+            BOXES[key] = box;
+        }
+        return box;
+    }
+}
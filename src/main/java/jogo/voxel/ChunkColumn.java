@@ -0,0 +1,36 @@
+package jogo.voxel;
+
+/**
+ * The vertical stack of chunks at one chunk (x, z) position, the unit in which the world is
+ * generated, streamed and unloaded. Chunks are indexed by chunk y.
+ */
+final class ChunkColumn {
+    /** Terrain and trees filled in, including the leaves of trees rooted in neighbouring columns. */
+    static final int GENERATED = 0;
+    /** Chunks may be meshed: the eight neighbouring columns are generated too. */
+    static final int READY = 1;
+
+    /** Heightmap kinds, the first index of {@link #tops}. */
+    static final int TOP_SOLID = 0, TOP_OPAQUE = 1, TOP_GROUND = 2;
+
+    final int cx, cz;
+    final Chunk[] chunks;
+    int state = GENERATED;
+    /**
+     * Highest y whose block is solid, opaque, or ground (solid, not foliage), per
+     * {@code [kind][lx * 16 + lz]}; -1 if there is none. Kept up to date by VoxelWorld on
+     * every block write, so surface queries need no scan.
+     */
+    final short[][] tops = new short[3][Chunk.SIZE * Chunk.SIZE];
+
+    ChunkColumn(int cx, int cz, Chunk[] chunks) {
+        this.cx = cx;
+        this.cz = cz;
+        this.chunks = chunks;
+    }
+
+    /** Packs chunk column coordinates into a {@link jogo.util.LongMap} key. */
+    static long key(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+}
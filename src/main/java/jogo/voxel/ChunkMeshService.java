@@ -0,0 +1,83 @@
+package jogo.voxel;
+
+import com.jme3.app.Application;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Worker pool that builds chunk vertex data off the render thread.
+ * Workers only read immutable {@link ChunkSnapshot}s; finished meshes are handed back to the
+ * render thread through {@link Application#enqueue(Runnable)}, where they can be attached.
+ */
+public class ChunkMeshService {
+    private final Application app;
+    private final ExecutorService workers;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public ChunkMeshService(Application app) {
+        this(app, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public ChunkMeshService(Application app, int threads) {
+        this.app = app;
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "ChunkMesher-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.workers = Executors.newFixedThreadPool(threads, factory);
+    }
+
+    /** Runs any snapshot-based build job on a worker. The job must not touch the scene graph. */
+    public <T> Future<T> submit(Callable<T> job) {
+        return workers.submit(job);
+    }
+
+    /**
+     * Runs {@code job} on a worker and hands its result to {@code onRenderThread} on the render
+     * thread. If the job throws (errors included), it is logged and handed to {@code onFailure},
+     * also on the render thread, so the caller can queue the chunk again. The snapshot only
+     * identifies the chunk in error messages.
+     */
+    public <T> void submit(ChunkSnapshot snapshot, Callable<T> job, Consumer<T> onRenderThread, Consumer<Throwable> onFailure) {
+        pending.incrementAndGet();
+        workers.execute(() -> {
+            try {
+                T result = job.call();
+                app.enqueue(() -> {
+                    pending.decrementAndGet();
+                    onRenderThread.accept(result);
+                });
+            } catch (Throwable e) {
+                failed.incrementAndGet();
+                System.err.println("Chunk [" + snapshot.getChunkX() + "," + snapshot.getChunkY() + "," + snapshot.getChunkZ() + "] meshing failed: " + e);
+                app.enqueue(() -> {
+                    pending.decrementAndGet();
+                    onFailure.accept(e);
+                });
+            }
+        });
+    }
+
+    /** Number of async builds whose result has not been applied yet. */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /** Async builds that threw since the service started. */
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
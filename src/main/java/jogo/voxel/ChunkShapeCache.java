@@ -0,0 +1,54 @@
+package jogo.voxel;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of chunk collision shapes, so a chunk whose body was dropped
+ * (no dynamic body near it any more) gets its shape back for free when something returns,
+ * as long as it was not edited meanwhile. Entries remember the chunk version they were
+ * built from; "no solid voxels" (null) is cached too. Render thread only.
+ */
+final class ChunkShapeCache {
+    private static final class Entry {
+        final int version;
+        final CollisionShape shape;
+
+        Entry(int version, CollisionShape shape) {
+            this.version = version;
+            this.shape = shape;
+        }
+    }
+
+    private final Map<Chunk, Entry> entries;
+
+    ChunkShapeCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Chunk, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Shape for the chunk's current voxels, built with {@link ChunkCollider} on a miss. */
+    CollisionShape get(Chunk chunk, VoxelPalette palette) {
+        Entry entry = entries.get(chunk);
+        if (entry != null && entry.version == chunk.getVersion()) return entry.shape;
+        CollisionShape shape = ChunkCollider.build(chunk, palette);
+        entries.put(chunk, new Entry(chunk.getVersion(), shape));
+        return shape;
+    }
+
+    /** Forgets an unloaded chunk. */
+    void remove(Chunk chunk) {
+        entries.remove(chunk);
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,79 @@
+package jogo.voxel;
+
+/**
+ * Copy of a chunk's voxels plus a one-voxel border taken from its six face neighbours
+ * (18x18x18 ids, 16 bits each), so meshing can cull faces across chunk borders without world lookups.
+ * Missing neighbours (outside the world) read as air.
+ */
+public final class ChunkSnapshot {
+    public static final int PADDED = Chunk.SIZE + 2;
+    // Index deltas for a step along each axis
+    static final int STEP_X = PADDED * PADDED;
+    static final int STEP_Y = PADDED;
+    static final int STEP_Z = 1;
+
+    private final int chunkX, chunkY, chunkZ;
+    private final int version;
+    private final char[] ids = new char[PADDED * PADDED * PADDED];
+    // Chunk ids unpacked in ChunkStorage order, reused per capturing thread
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[ChunkStorage.VOLUME]);
+
+    private ChunkSnapshot(int chunkX, int chunkY, int chunkZ, int version) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.chunkZ = chunkZ;
+        this.version = version;
+    }
+
+    /**
+     * Captures {@code chunk} and the facing layer of each neighbour. Any neighbour may be null.
+     */
+    public static ChunkSnapshot capture(Chunk chunk, Chunk nx, Chunk px, Chunk ny, Chunk py, Chunk nz, Chunk pz) {
+        final int S = Chunk.SIZE;
+        ChunkSnapshot snap = new ChunkSnapshot(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ(), chunk.getVersion());
+        char[] ids = snap.ids;
+        ChunkStorage storage = chunk.getStorage();
+        if (storage != null) { // null = all air, which the fresh array already is
+            int[] inner = SCRATCH.get();
+            storage.copyTo(inner);
+            // Both layouts are x-major with z fastest, so each z row is a straight copy
+            int src = 0;
+            for (int x = 0; x < S; x++) {
+                for (int y = 0; y < S; y++) {
+                    int dst = index(x, y, 0);
+                    for (int z = 0; z < S; z++) ids[dst + z] = (char) inner[src++];
+                }
+            }
+        }
+        for (int a = 0; a < S; a++) {
+            for (int b = 0; b < S; b++) {
+                if (nx != null) ids[index(-1, a, b)] = (char) nx.getId(S - 1, a, b);
+                if (px != null) ids[index(S, a, b)] = (char) px.getId(0, a, b);
+                if (ny != null) ids[index(a, -1, b)] = (char) ny.getId(a, S - 1, b);
+                if (py != null) ids[index(a, S, b)] = (char) py.getId(a, 0, b);
+                if (nz != null) ids[index(a, b, -1)] = (char) nz.getId(a, b, S - 1);
+                if (pz != null) ids[index(a, b, S)] = (char) pz.getId(a, b, 0);
+            }
+        }
+        return snap;
+    }
+
+    /** Snapshot of a chunk on its own, treating everything outside it as air. */
+    public static ChunkSnapshot capture(Chunk chunk) {
+        return capture(chunk, null, null, null, null, null, null);
+    }
+
+    /** Index into the padded array; local coordinates range from -1 to {@link Chunk#SIZE}. */
+    public static int index(int x, int y, int z) {
+        return ((x + 1) * PADDED + (y + 1)) * PADDED + (z + 1);
+    }
+
+    public int get(int x, int y, int z) { return ids[index(x, y, z)]; }
+    int getAt(int index) { return ids[index]; }
+
+    public int getChunkX() { return chunkX; }
+    public int getChunkY() { return chunkY; }
+    public int getChunkZ() { return chunkZ; }
+    /** {@link Chunk#getVersion()} at capture time. */
+    public int getVersion() { return version; }
+}
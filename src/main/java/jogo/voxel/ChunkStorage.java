@@ -0,0 +1,357 @@
+package jogo.voxel;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Flat voxel storage for one chunk: a small local palette of global block ids plus a
+ * bit-packed array of palette indices. The entry width is 0 bits while the chunk holds a
+ * single type, then 1, 2, 4, 8 or 16 bits as more types appear. Widths are powers of two,
+ * so an entry never straddles two longs.
+ * <p>
+ * Voxels are addressed by {@link #index(int, int, int)} (x-major, z fastest), the same order
+ * as {@link ChunkSnapshot}. Not thread-safe; readers on other threads use snapshots.
+ * <p>
+ * {@link #snapshot()} is copy-on-write: both copies share the arrays until one of them is
+ * edited, so snapshotting many chunks for a save costs almost nothing on the render thread.
+ */
+final class ChunkStorage {
+    static final int SIZE = Chunk.SIZE;
+    static final int VOLUME = SIZE * SIZE * SIZE;
+    private static final int[] WIDTHS = {0, 1, 2, 4, 8, 16};
+
+    private int bits;
+    private long[] data;          // null while bits == 0
+    private int[] paletteIds = new int[1];
+    private int[] counts = new int[1];
+    private int paletteSize = 1;
+    // Open-addressing global id -> local index table (key = id + 1, 0 = empty); only built
+    // once the palette outgrows a linear scan
+    private static final int LINEAR_SCAN_MAX = 16;
+    private int[] lookupKeys;
+    private int[] lookupLocals;
+    // of() maps ids below this through a direct table instead of searching the palette
+    private static final int DIRECT_LOOKUP_MAX = 1024;
+    // Arrays are shared with a snapshot; copy them before the next edit
+    private boolean shared;
+
+    /** Storage filled with {@code id}. */
+    ChunkStorage(int id) {
+        paletteIds[0] = id;
+        counts[0] = VOLUME;
+    }
+
+    /**
+     * Storage holding {@code ids}, given in {@link #index} order: one pass collects the
+     * palette, a second packs the entries at their final width. Used by terrain generation
+     * and bulk edits instead of {@link #set} per voxel.
+     */
+    static ChunkStorage of(int[] ids) {
+        int maxId = 0;
+        for (int i = 0; i < VOLUME; i++) maxId = Math.max(maxId, ids[i]);
+        // local index + 1 per id (0 = not in the palette yet); noisy chunks change id at
+        // almost every voxel, and a palette search each time would dominate
+        int[] direct = maxId < DIRECT_LOOKUP_MAX ? new int[maxId + 1] : null;
+        ChunkStorage s = new ChunkStorage(ids[0]);
+        if (direct != null) direct[ids[0]] = 1;
+        int last = ids[0];
+        for (int i = 1; i < VOLUME; i++) {
+            int id = ids[i];
+            if (id != last) {
+                if (direct != null) {
+                    if (direct[id] == 0) direct[id] = s.appendPalette(id) + 1;
+                } else if (s.find(id) < 0) {
+                    s.appendPalette(id);
+                }
+                last = id;
+            }
+        }
+        if (s.paletteSize == 1) return s;
+        // Final width straight away instead of widening step by step
+        int bits = 1;
+        while ((1 << bits) < s.paletteSize) bits <<= 1;
+        s.bits = bits;
+        s.data = new long[VOLUME * bits / 64];
+        Arrays.fill(s.counts, 0);
+        // Whole words at a time; the storage is still empty, so no read-modify-write
+        int[] counts = s.counts;
+        long[] data = s.data;
+        last = ids[0];
+        int local = 0;
+        for (int w = 0, i = 0; w < data.length; w++) {
+            long word = 0;
+            for (int shift = 0; shift < 64; shift += bits, i++) {
+                int id = ids[i];
+                if (id != last) {
+                    local = direct != null ? direct[id] - 1 : s.find(id);
+                    last = id;
+                }
+                word |= (long) local << shift;
+                counts[local]++;
+            }
+            data[w] = word;
+        }
+        return s;
+    }
+
+    /**
+     * Copy-on-write copy, e.g. for handing the voxels to a writer thread. Whichever side is
+     * edited first copies the arrays; a snapshot that is only read never does.
+     */
+    ChunkStorage snapshot() {
+        ChunkStorage c = new ChunkStorage(paletteIds[0]);
+        c.bits = bits;
+        c.data = data;
+        c.paletteIds = paletteIds;
+        c.counts = counts;
+        c.paletteSize = paletteSize;
+        c.lookupKeys = lookupKeys;
+        c.lookupLocals = lookupLocals;
+        c.shared = true;
+        shared = true;
+        return c;
+    }
+
+    private void unshare() {
+        if (data != null) data = data.clone();
+        paletteIds = paletteIds.clone();
+        counts = counts.clone();
+        if (lookupKeys != null) {
+            lookupKeys = lookupKeys.clone();
+            lookupLocals = lookupLocals.clone();
+        }
+        shared = false;
+    }
+
+    /** Writes the palette and packed entries as they are; {@link #read} restores them. */
+    void write(DataOutput out) throws IOException {
+        out.writeByte(bits);
+        out.writeShort(paletteSize - 1);
+        for (int i = 0; i < paletteSize; i++) out.writeInt(paletteIds[i]);
+        if (data != null) {
+            for (long word : data) out.writeLong(word);
+        }
+    }
+
+    static ChunkStorage read(DataInput in) throws IOException {
+        int bits = in.readByte();
+        int paletteSize = in.readUnsignedShort() + 1;
+        if (Arrays.binarySearch(WIDTHS, bits) < 0 || paletteSize > (1 << bits)) {
+            throw new IOException("Corrupt chunk storage (bits " + bits + ", palette " + paletteSize + ")");
+        }
+        ChunkStorage s = new ChunkStorage(0);
+        s.paletteIds = new int[paletteSize];
+        s.counts = new int[paletteSize];
+        s.paletteSize = paletteSize;
+        for (int i = 0; i < paletteSize; i++) s.paletteIds[i] = in.readInt();
+        s.bits = bits;
+        if (bits == 0) {
+            s.counts[0] = VOLUME;
+            return s;
+        }
+        s.data = new long[VOLUME * bits / 64];
+        for (int i = 0; i < s.data.length; i++) s.data[i] = in.readLong();
+        for (int i = 0; i < VOLUME; i++) {
+            int local = s.readLocal(i);
+            if (local >= paletteSize) throw new IOException("Corrupt chunk storage (entry " + local + ")");
+            s.counts[local]++;
+        }
+        if (paletteSize > LINEAR_SCAN_MAX) s.rebuildLookup();
+        return s;
+    }
+
+    static int index(int x, int y, int z) {
+        return (x * SIZE + y) * SIZE + z;
+    }
+
+    int get(int index) {
+        if (bits == 0) return paletteIds[0];
+        return paletteIds[readLocal(index)];
+    }
+
+    void set(int index, int id) {
+        if (shared) {
+            if (get(index) == id) return;
+            unshare();
+        }
+        int local = localIndex(id);
+        int old = bits == 0 ? 0 : readLocal(index);
+        if (old == local) return;
+        counts[old]--;
+        counts[local]++;
+        writeLocal(index, local);
+        // Last voxel of another type gone: drop back to the 0-bit uniform form
+        if (counts[local] == VOLUME) fill(id);
+    }
+
+    /** Sets every voxel to {@code id} and drops the packed data. */
+    void fill(int id) {
+        shared = false;   // every array is replaced
+        lookupKeys = null;
+        lookupLocals = null;
+        bits = 0;
+        data = null;
+        paletteIds = new int[1];
+        counts = new int[1];
+        paletteSize = 1;
+        paletteIds[0] = id;
+        counts[0] = VOLUME;
+    }
+
+    /**
+     * Unpacks all ids into {@code dst} in index order, walking the packed words once instead
+     * of decoding each voxel on its own.
+     */
+    void copyTo(int[] dst) {
+        if (bits == 0) {
+            Arrays.fill(dst, 0, VOLUME, paletteIds[0]);
+            return;
+        }
+        int perWord = 64 / bits;
+        long mask = (1L << bits) - 1;
+        int i = 0;
+        for (long word : data) {
+            for (int k = 0; k < perWord; k++, word >>>= bits) {
+                dst[i++] = paletteIds[(int) (word & mask)];
+            }
+        }
+    }
+
+    /** True if every voxel holds the same id; such storage keeps no packed data. */
+    boolean isUniform() { return bits == 0; }
+
+    /** The single id of a {@link #isUniform uniform} storage, -1 otherwise. */
+    int getUniformId() { return bits == 0 ? paletteIds[0] : -1; }
+
+    /** Voxels holding {@code id}. */
+    int count(int id) {
+        int local = find(id);
+        return local < 0 ? 0 : counts[local];
+    }
+
+    /** Current entry width in bits (0 for a single-type chunk). */
+    int getBitsPerEntry() { return bits; }
+
+    /** Block types with at least one voxel in this chunk. */
+    int getDistinctIds() {
+        int n = 0;
+        for (int i = 0; i < paletteSize; i++) if (counts[i] > 0) n++;
+        return n;
+    }
+
+    /** Approximate heap footprint of this storage, for memory statistics. */
+    long estimateBytes() {
+        long arrays = 16L + paletteIds.length * 4L + 16L + counts.length * 4L;
+        if (data != null) arrays += 16L + data.length * 8L;
+        if (lookupKeys != null) arrays += 32L + lookupKeys.length * 8L;
+        return 40L + arrays;
+    }
+
+    private int readLocal(int index) {
+        int shift = Integer.numberOfTrailingZeros(bits);             // log2(bits)
+        int perWordLog = 6 - shift;                                   // log2(64 / bits)
+        long word = data[index >>> perWordLog];
+        int offset = (index & ((1 << perWordLog) - 1)) << shift;
+        return (int) ((word >>> offset) & ((1L << bits) - 1));
+    }
+
+    private void writeLocal(int index, int local) {
+        int shift = Integer.numberOfTrailingZeros(bits);
+        int perWordLog = 6 - shift;
+        int w = index >>> perWordLog;
+        int offset = (index & ((1 << perWordLog) - 1)) << shift;
+        long mask = ((1L << bits) - 1) << offset;
+        data[w] = (data[w] & ~mask) | ((long) local << offset);
+    }
+
+    // Local palette index for a global id, adding it (and widening entries) if needed
+    private int localIndex(int id) {
+        int found = find(id);
+        if (found >= 0) return found;
+        // Reuse a slot whose type no longer occurs in the chunk
+        for (int i = 0; i < paletteSize; i++) {
+            if (counts[i] == 0) {
+                paletteIds[i] = id;
+                if (lookupKeys != null) rebuildLookup();
+                return i;
+            }
+        }
+        if (paletteSize == capacity()) widen();
+        return appendPalette(id);
+    }
+
+    // New palette slot for id; the caller makes sure the entry width can address it
+    private int appendPalette(int id) {
+        if (paletteSize == paletteIds.length) {
+            paletteIds = Arrays.copyOf(paletteIds, paletteSize * 2);
+            counts = Arrays.copyOf(counts, paletteSize * 2);
+        }
+        int local = paletteSize++;
+        paletteIds[local] = id;
+        if (lookupKeys != null && paletteSize * 2 <= lookupKeys.length) {
+            insertLookup(id, local);
+        } else if (paletteSize > LINEAR_SCAN_MAX) {
+            rebuildLookup();
+        }
+        return local;
+    }
+
+    private int find(int id) {
+        if (lookupKeys == null) {
+            for (int i = 0; i < paletteSize; i++) if (paletteIds[i] == id) return i;
+            return -1;
+        }
+        int mask = lookupKeys.length - 1;
+        for (int h = mix(id) & mask; lookupKeys[h] != 0; h = (h + 1) & mask) {
+            if (lookupKeys[h] == id + 1) return lookupLocals[h];
+        }
+        return -1;
+    }
+
+    private void rebuildLookup() {
+        int cap = Integer.highestOneBit(Math.max(paletteSize, LINEAR_SCAN_MAX) * 4 - 1);
+        lookupKeys = new int[cap];
+        lookupLocals = new int[cap];
+        for (int i = 0; i < paletteSize; i++) insertLookup(paletteIds[i], i);
+    }
+
+    private void insertLookup(int id, int local) {
+        int mask = lookupKeys.length - 1;
+        int h = mix(id) & mask;
+        while (lookupKeys[h] != 0) h = (h + 1) & mask;
+        lookupKeys[h] = id + 1;
+        lookupLocals[h] = local;
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int capacity() {
+        return 1 << bits;
+    }
+
+    // Repacks into the next entry width; local indices are unchanged
+    private void widen() {
+        int next = bits;
+        for (int w : WIDTHS) {
+            if (w > bits) { next = w; break; }
+        }
+        if (next == bits) throw new IllegalStateException("Chunk palette full (more than 65536 block types)");
+        long[] packed = new long[VOLUME * next / 64];
+        if (bits != 0) {
+            int[] locals = new int[VOLUME];
+            for (int i = 0; i < VOLUME; i++) locals[i] = readLocal(i);
+            int perWordLog = 6 - Integer.numberOfTrailingZeros(next);
+            for (int i = 0; i < VOLUME; i++) {
+                int offset = (i & ((1 << perWordLog) - 1)) * next;
+                packed[i >>> perWordLog] |= (long) locals[i] << offset;
+            }
+        }
+        bits = next;
+        data = packed;
+    }
+}
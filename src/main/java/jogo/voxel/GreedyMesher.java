@@ -0,0 +1,71 @@
+package jogo.voxel;
+
+/**
+ * Greedy mesher: for every face direction and slice of a chunk, merges coplanar visible
+ * faces of the same block type into maximal rectangles. A flat 16x16 surface becomes a
+ * single quad instead of 256.
+ */
+final class GreedyMesher {
+    private static final int S = Chunk.SIZE;
+
+    private final int[] mask = new int[S * S];
+    private final int[] p = new int[3];
+    private final int[] size = new int[3];
+
+    void mesh(ChunkSnapshot snap, VoxelPalette palette, MeshBuilder[] builders) {
+        int baseX = snap.getChunkX() * S;
+        int baseY = snap.getChunkY() * S;
+        int baseZ = snap.getChunkZ() * S;
+        for (MeshBuilder.Face face : MeshBuilder.Face.values()) {
+            int d = face.ordinal() >> 1;             // normal axis: PX/NX=0, PY/NY=1, PZ/NZ=2
+            int step = (face.ordinal() & 1) == 0 ? 1 : -1;
+            int neighbour = (d == 0 ? ChunkSnapshot.STEP_X : d == 1 ? ChunkSnapshot.STEP_Y : ChunkSnapshot.STEP_Z) * step;
+            int du = (d + 1) % 3;
+            int dv = (d + 2) % 3;
+            for (int s = 0; s < S; s++) {
+                // 1. Mask of visible faces in this slice (block id, 0 = no face)
+                p[d] = s;
+                for (int v = 0; v < S; v++) {
+                    p[dv] = v;
+                    for (int u = 0; u < S; u++) {
+                        p[du] = u;
+                        int i = ChunkSnapshot.index(p[0], p[1], p[2]);
+                        int id = snap.getAt(i);
+                        int val = 0;
+                        if (id != VoxelPalette.AIR_ID && palette.isSolid(id)
+                                && !palette.isSolid(snap.getAt(i + neighbour))) {
+                            val = id;
+                        }
+                        mask[v * S + u] = val;
+                    }
+                }
+                // 2. Grow maximal rectangles of equal ids and emit one quad each
+                for (int v = 0; v < S; v++) {
+                    for (int u = 0; u < S; ) {
+                        int id = mask[v * S + u];
+                        if (id == 0) { u++; continue; }
+                        int w = 1;
+                        while (u + w < S && mask[v * S + u + w] == id) w++;
+                        int h = 1;
+                        grow:
+                        while (v + h < S) {
+                            for (int k = 0; k < w; k++) {
+                                if (mask[(v + h) * S + u + k] != id) break grow;
+                            }
+                            h++;
+                        }
+                        for (int dy = 0; dy < h; dy++) {
+                            for (int k = 0; k < w; k++) mask[(v + dy) * S + u + k] = 0;
+                        }
+                        p[d] = s; p[du] = u; p[dv] = v;
+                        size[d] = 1; size[du] = w; size[dv] = h;
+                        builders[id].setLayer(id);
+                        builders[id].addFaceRect(face, baseX + p[0], baseY + p[1], baseZ + p[2],
+                                size[0], size[1], size[2]);
+                        u += w;
+                    }
+                }
+            }
+        }
+    }
+}
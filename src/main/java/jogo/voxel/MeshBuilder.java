@@ -4,127 +4,150 @@ import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Mesh;
 import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 
+/**
+ * Accumulates quads into primitive, growable arrays and turns them into a jME {@link Mesh}.
+ * A builder can be {@link #clear() cleared} and reused, so after warm-up adding faces does
+ * not allocate at all.
+ */
 public class MeshBuilder {
-    private final List<Float> positions = new ArrayList<>();
-    private final List<Float> normals = new ArrayList<>();
-    private final List<Float> uvs = new ArrayList<>();
-    private final List<Integer> indices = new ArrayList<>();
+    private static final int INITIAL_VERTICES = 256;
+
+    private float[] positions = new float[INITIAL_VERTICES * 3];
+    private float[] normals = new float[INITIAL_VERTICES * 3];
+    private float[] uvs = new float[INITIAL_VERTICES * 3];
+    private int[] indices = new int[INITIAL_VERTICES / 4 * 6];
+    private int vertexCount = 0;
+    private int indexCount = 0;
 
     // Optional: enable per-block UV randomization for variety
     private boolean randomizeUV = false;
 
+    // Texture-array mode: TexCoord becomes (u, v, layer) and 'layer' is stamped on new vertices
+    private int uvComponents = 2;
+    private float layer = 0f;
+
     public void setRandomizeUV(boolean randomizeUV) {
         this.randomizeUV = randomizeUV;
     }
 
+    /**
+     * Enables a third TexCoord component holding the texture-array layer. Call on an empty builder.
+     */
+    public void setTextureLayers(boolean textureLayers) {
+        this.uvComponents = textureLayers ? 3 : 2;
+    }
+
+    /** Layer written into the TexCoord of vertices added from now on (texture-array mode only). */
+    public void setLayer(int layer) {
+        this.layer = layer;
+    }
+
+    /** Drops all accumulated geometry but keeps the backing arrays for reuse. */
+    public void clear() {
+        vertexCount = 0;
+        indexCount = 0;
+    }
+
+    public boolean isEmpty() { return indexCount == 0; }
+    public int getVertexCount() { return vertexCount; }
+    public int getTriangleCount() { return indexCount / 3; }
+
     public int addVertex(Vector3f p, Vector3f n, Vector2f uv) {
-        int idx = positions.size() / 3;
-        positions.add(p.x); positions.add(p.y); positions.add(p.z);
-        normals.add(n.x); normals.add(n.y); normals.add(n.z);
-        uvs.add(uv.x); uvs.add(uv.y);
-        return idx;
+        ensureVertexCapacity(1);
+        return putVertex(p.x, p.y, p.z, n.x, n.y, n.z, uv.x, uv.y);
     }
 
     public void addQuad(Vector3f v0, Vector3f v1, Vector3f v2, Vector3f v3, Vector3f normal) {
-        int i0 = addVertex(v0, normal, new Vector2f(0,0));
-        int i1 = addVertex(v1, normal, new Vector2f(0,1));
-        int i2 = addVertex(v2, normal, new Vector2f(1,1));
-        int i3 = addVertex(v3, normal, new Vector2f(1,0));
-        // CCW triangles
-        indices.add(i0); indices.add(i1); indices.add(i2);
-        indices.add(i0); indices.add(i2); indices.add(i3);
-    }
-
-    // Add a quad with explicit UVs
-    private void addQuadUV(Vector3f v0, Vector3f v1, Vector3f v2, Vector3f v3, Vector3f normal,
-                           Vector2f uv0, Vector2f uv1, Vector2f uv2, Vector2f uv3) {
-        int i0 = addVertex(v0, normal, uv0);
-        int i1 = addVertex(v1, normal, uv1);
-        int i2 = addVertex(v2, normal, uv2);
-        int i3 = addVertex(v3, normal, uv3);
-        indices.add(i0); indices.add(i1); indices.add(i2);
-        indices.add(i0); indices.add(i2); indices.add(i3);
-    }
-
-    private static Vector2f transformUV(Vector2f uv, int rot, boolean flipU, boolean flipV) {
-        float u = uv.x;
-        float v = uv.y;
-        // Apply flips first
-        if (flipU) u = 1f - u;
-        if (flipV) v = 1f - v;
-        // Apply rotation in 90-degree steps around center (0.5,0.5)
-        // To rotate around center, shift to origin, rotate, shift back
-        float cu = u - 0.5f;
-        float cv = v - 0.5f;
-        float ru, rv;
-        switch (rot & 3) {
-            case 1 -> { // 90 deg
-                ru = cv;
-                rv = -cu;
-            }
-            case 2 -> { // 180 deg
-                ru = -cu;
-                rv = -cv;
-            }
-            case 3 -> { // 270 deg
-                ru = -cv;
-                rv = cu;
-            }
-            default -> { // 0 deg
-                ru = cu;
-                rv = cv;
-            }
-        }
-        return new Vector2f(ru + 0.5f, rv + 0.5f);
+        ensureVertexCapacity(4);
+        ensureIndexCapacity(6);
+        int i0 = putVertex(v0.x, v0.y, v0.z, normal.x, normal.y, normal.z, 0, 0);
+        putVertex(v1.x, v1.y, v1.z, normal.x, normal.y, normal.z, 0, 1);
+        putVertex(v2.x, v2.y, v2.z, normal.x, normal.y, normal.z, 1, 1);
+        putVertex(v3.x, v3.y, v3.z, normal.x, normal.y, normal.z, 1, 0);
+        putQuadIndices(i0);
     }
 
     public void addVoxelFace(int x, int y, int z, Face face) {
         float xf = x, yf = y, zf = z;
 
-        int rot = 0; boolean flipU = false; boolean flipV = false;
-        if (randomizeUV) {
-            int h = hash3(x, y, z);
-            rot = (h) & 3;                 // 0,1,2,3 => 0/90/180/270 deg
-            flipU = ((h >>> 2) & 1) != 0;  // boolean
-            flipV = ((h >>> 3) & 1) != 0;  // boolean
+        // Variant bits: rot = 0..1, flipU = 2, flipV = 3 (see UV_VARIANTS)
+        float[] uv = UV_VARIANTS[randomizeUV ? hash3(x, y, z) & 15 : 0];
+        float[] corners = FACE_CORNERS[face.ordinal()];
+        float[] n = FACE_NORMALS[face.ordinal()];
+
+        ensureVertexCapacity(4);
+        ensureIndexCapacity(6);
+        int i0 = vertexCount;
+        for (int c = 0; c < 4; c++) {
+            putVertex(xf + corners[c * 3], yf + corners[c * 3 + 1], zf + corners[c * 3 + 2],
+                    n[0], n[1], n[2], uv[c * 2], uv[c * 2 + 1]);
         }
+        putQuadIndices(i0);
+    }
 
-        // Base UVs for a unit face
-        Vector2f uv00 = transformUV(new Vector2f(0f, 0f), rot, flipU, flipV);
-        Vector2f uv01 = transformUV(new Vector2f(0f, 1f), rot, flipU, flipV);
-        Vector2f uv11 = transformUV(new Vector2f(1f, 1f), rot, flipU, flipV);
-        Vector2f uv10 = transformUV(new Vector2f(1f, 0f), rot, flipU, flipV);
-
-        switch (face) {
-            case PX -> addQuadUV(
-                    new Vector3f(xf+1, yf,   zf  ), new Vector3f(xf+1, yf+1, zf  ), new Vector3f(xf+1, yf+1, zf+1), new Vector3f(xf+1, yf,   zf+1), FaceNormals.PX,
-                    uv00, uv01, uv11, uv10
-            );
-            case NX -> addQuadUV(
-                    new Vector3f(xf,   yf,   zf+1), new Vector3f(xf,   yf+1, zf+1), new Vector3f(xf,   yf+1, zf  ), new Vector3f(xf,   yf,   zf  ), FaceNormals.NX,
-                    uv00, uv01, uv11, uv10
-            );
-            case PY -> addQuadUV(
-                    new Vector3f(xf,   yf+1, zf  ), new Vector3f(xf,   yf+1, zf+1), new Vector3f(xf+1, yf+1, zf+1), new Vector3f(xf+1, yf+1, zf  ), FaceNormals.PY,
-                    uv00, uv01, uv11, uv10
-            );
-            case NY -> addQuadUV(
-                    new Vector3f(xf+1, yf,   zf  ), new Vector3f(xf+1, yf,   zf+1), new Vector3f(xf,   yf,   zf+1), new Vector3f(xf,   yf,   zf  ), FaceNormals.NY,
-                    uv00, uv01, uv11, uv10
-            );
-            case PZ -> addQuadUV(
-                    new Vector3f(xf,   yf,   zf+1), new Vector3f(xf+1, yf,   zf+1), new Vector3f(xf+1, yf+1, zf+1), new Vector3f(xf,   yf+1, zf+1), FaceNormals.PZ,
-                    uv00, uv01, uv11, uv10
-            );
-            case NZ -> addQuadUV(
-                    new Vector3f(xf+1, yf,   zf  ), new Vector3f(xf,   yf,   zf  ), new Vector3f(xf,   yf+1, zf  ), new Vector3f(xf+1, yf+1, zf  ), FaceNormals.NZ,
-                    uv00, uv01, uv11, uv10
-            );
+    /**
+     * Adds one side of the axis-aligned box [x,x+sx]x[y,y+sy]x[z,z+sz], used by greedy meshing
+     * to emit a merged rectangle of faces. UVs are derived from world coordinates, so with a
+     * repeating texture the image still tiles once per block.
+     */
+    public void addFaceRect(Face face, int x, int y, int z, int sx, int sy, int sz) {
+        float[] corners = FACE_CORNERS[face.ordinal()];
+        float[] n = FACE_NORMALS[face.ordinal()];
+        int[] ua = UV_U_AXIS[face.ordinal()];
+        int[] va = UV_V_AXIS[face.ordinal()];
+
+        ensureVertexCapacity(4);
+        ensureIndexCapacity(6);
+        int i0 = vertexCount;
+        for (int c = 0; c < 4; c++) {
+            float px = x + corners[c * 3] * sx;
+            float py = y + corners[c * 3 + 1] * sy;
+            float pz = z + corners[c * 3 + 2] * sz;
+            float u = px * ua[0] + py * ua[1] + pz * ua[2];
+            float v = px * va[0] + py * va[1] + pz * va[2];
+            putVertex(px, py, pz, n[0], n[1], n[2], u, v);
         }
+        putQuadIndices(i0);
+    }
+
+    private int putVertex(float px, float py, float pz, float nx, float ny, float nz, float u, float v) {
+        int p = vertexCount * 3;
+        positions[p] = px; positions[p + 1] = py; positions[p + 2] = pz;
+        normals[p] = nx; normals[p + 1] = ny; normals[p + 2] = nz;
+        int t = vertexCount * uvComponents;
+        uvs[t] = u; uvs[t + 1] = v;
+        if (uvComponents == 3) uvs[t + 2] = layer;
+        return vertexCount++;
+    }
+
+    private void putQuadIndices(int i0) {
+        // CCW triangles
+        int[] idx = indices;
+        int k = indexCount;
+        idx[k] = i0; idx[k + 1] = i0 + 1; idx[k + 2] = i0 + 2;
+        idx[k + 3] = i0; idx[k + 4] = i0 + 2; idx[k + 5] = i0 + 3;
+        indexCount = k + 6;
+    }
+
+    private void ensureVertexCapacity(int extra) {
+        int needed = vertexCount + extra;
+        if (needed * 3 <= positions.length) return;
+        int cap = Math.max(needed, positions.length / 3 * 2);
+        positions = Arrays.copyOf(positions, cap * 3);
+        normals = Arrays.copyOf(normals, cap * 3);
+        uvs = Arrays.copyOf(uvs, cap * 3);
+    }
+
+    private void ensureIndexCapacity(int extra) {
+        int needed = indexCount + extra;
+        if (needed <= indices.length) return;
+        indices = Arrays.copyOf(indices, Math.max(needed, indices.length * 2));
     }
 
     private static int hash3(int x, int y, int z) {
@@ -138,25 +161,23 @@ public class MeshBuilder {
 
     public Mesh build() {
         Mesh mesh = new Mesh();
-        float[] pos = toFloatArray(positions);
-        float[] nor = toFloatArray(normals);
-        float[] tc = toFloatArray(uvs);
-        int[] idx = indices.stream().mapToInt(Integer::intValue).toArray();
+        FloatBuffer pos = BufferUtils.createFloatBuffer(vertexCount * 3);
+        pos.put(positions, 0, vertexCount * 3).flip();
+        FloatBuffer nor = BufferUtils.createFloatBuffer(vertexCount * 3);
+        nor.put(normals, 0, vertexCount * 3).flip();
+        FloatBuffer tc = BufferUtils.createFloatBuffer(vertexCount * uvComponents);
+        tc.put(uvs, 0, vertexCount * uvComponents).flip();
+        IntBuffer idx = BufferUtils.createIntBuffer(indexCount);
+        idx.put(indices, 0, indexCount).flip();
         mesh.setBuffer(VertexBuffer.Type.Position, 3, pos);
         mesh.setBuffer(VertexBuffer.Type.Normal, 3, nor);
-        mesh.setBuffer(VertexBuffer.Type.TexCoord, 2, tc);
+        mesh.setBuffer(VertexBuffer.Type.TexCoord, uvComponents, tc);
         mesh.setBuffer(VertexBuffer.Type.Index, 3, idx);
         mesh.updateBound();
         mesh.updateCounts();
         return mesh;
     }
 
-    private static float[] toFloatArray(List<Float> list) {
-        float[] arr = new float[list.size()];
-        for (int i = 0; i < arr.length; i++) arr[i] = list.get(i);
-        return arr;
-    }
-
     public enum Face { PX, NX, PY, NY, PZ, NZ }
 
     public static class FaceNormals {
@@ -167,4 +188,59 @@ public class MeshBuilder {
         public static final Vector3f PZ = new Vector3f(0,0,1);
         public static final Vector3f NZ = new Vector3f(0,0,-1);
     }
+
+    // Corner offsets (x,y,z) of the four vertices of each face, indexed by Face.ordinal()
+    private static final float[][] FACE_CORNERS = {
+            {1,0,0, 1,1,0, 1,1,1, 1,0,1}, // PX
+            {0,0,1, 0,1,1, 0,1,0, 0,0,0}, // NX
+            {0,1,0, 0,1,1, 1,1,1, 1,1,0}, // PY
+            {1,0,0, 1,0,1, 0,0,1, 0,0,0}, // NY
+            {0,0,1, 1,0,1, 1,1,1, 0,1,1}, // PZ
+            {1,0,0, 0,0,0, 0,1,0, 1,1,0}, // NZ
+    };
+
+    private static final float[][] FACE_NORMALS = {
+            {1,0,0}, {-1,0,0}, {0,1,0}, {0,-1,0}, {0,0,1}, {0,0,-1}
+    };
+
+    // World axis (x,y,z) that U and V follow on each face, matching the unit-face layout above
+    private static final int[][] UV_U_AXIS = {
+            {0,0,1}, {0,0,-1}, {1,0,0}, {-1,0,0}, {0,1,0}, {0,1,0}
+    };
+    private static final int[][] UV_V_AXIS = {
+            {0,1,0}, {0,1,0}, {0,0,1}, {0,0,1}, {1,0,0}, {-1,0,0}
+    };
+
+    // The 16 UV layouts (4 rotations x flipU x flipV) for corners (0,0),(0,1),(1,1),(1,0)
+    private static final float[][] UV_VARIANTS = new float[16][];
+
+    static {
+        float[] base = {0,0, 0,1, 1,1, 1,0};
+        for (int variant = 0; variant < 16; variant++) {
+            int rot = variant & 3;
+            boolean flipU = ((variant >>> 2) & 1) != 0;
+            boolean flipV = ((variant >>> 3) & 1) != 0;
+            float[] uv = new float[8];
+            for (int c = 0; c < 4; c++) {
+                float u = base[c * 2];
+                float v = base[c * 2 + 1];
+                // Apply flips first
+                if (flipU) u = 1f - u;
+                if (flipV) v = 1f - v;
+                // Then rotate in 90-degree steps around the center (0.5,0.5)
+                float cu = u - 0.5f;
+                float cv = v - 0.5f;
+                float ru, rv;
+                switch (rot) {
+                    case 1 -> { ru = cv; rv = -cu; }   // 90 deg
+                    case 2 -> { ru = -cu; rv = -cv; }  // 180 deg
+                    case 3 -> { ru = -cv; rv = cu; }   // 270 deg
+                    default -> { ru = cu; rv = cv; }   // 0 deg
+                }
+                uv[c * 2] = ru + 0.5f;
+                uv[c * 2 + 1] = rv + 0.5f;
+            }
+            UV_VARIANTS[variant] = uv;
+        }
+    }
 }
@@ -0,0 +1,197 @@
+package jogo.voxel;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.PhysicsTickListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.control.BetterCharacterControl;
+import com.jme3.math.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Go-between for a physics space that Bullet steps on its own thread
+ * ({@code BulletAppState.ThreadingType.PARALLEL}). Calls into the space from the render
+ * thread (adding and removing chunk bodies, swapping their shapes, warping the player)
+ * are {@link #execute queued} and run on the physics thread at the start of its next
+ * tick, before anything moves. At the end of every tick the positions of the
+ * {@link #track tracked} bodies are published as an immutable frame, which the render thread
+ * reads through {@link #getLocation} blended between the last two ticks, like
+ * {@link VoxelMotor#interpolate}, instead of touching bodies the step may be moving.
+ * Characters registered with {@link #trackOnGround} also publish whether they stand on
+ * the ground, read through {@link #isOnGround}.
+ * <p>
+ * Add it to the space as a tick listener. Commands wait for a tick, so one issued in a
+ * frame too short for a whole tick runs in a later frame, still before the next step.
+ */
+public final class PhysicsHandoff implements PhysicsTickListener, Executor {
+    // Farther than this in one tick is a warp, shown at once instead of blended
+    private static final float WARP_DISTANCE = 4f;
+
+    /** Positions at the end of one tick; never changed once published. */
+    static final class Frame {
+        final PhysicsCollisionObject[] bodies;
+        final float[] prev;   // x, y, z per body before the tick
+        final float[] cur;    // x, y, z per body after it
+        final boolean[] onGround;   // per body; false for bodies that are not characters
+        final double time;    // physics time at the end of the tick
+        final float step;
+
+        Frame(PhysicsCollisionObject[] bodies, float[] prev, float[] cur, boolean[] onGround, double time, float step) {
+            this.bodies = bodies;
+            this.prev = prev;
+            this.cur = cur;
+            this.onGround = onGround;
+            this.time = time;
+            this.step = step;
+        }
+
+        int indexOf(PhysicsCollisionObject body, int hint) {
+            if (hint < bodies.length && bodies[hint] == body) return hint;
+            for (int i = 0; i < bodies.length; i++) {
+                if (bodies[i] == body) return i;
+            }
+            return -1;
+        }
+    }
+
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private volatile Frame frame = new Frame(new PhysicsCollisionObject[0], new float[0], new float[0], new boolean[0], 0, 1f);
+    // Physics thread only
+    private final List<PhysicsCollisionObject> tracked = new ArrayList<>();
+    private final List<BetterCharacterControl> characters = new ArrayList<>();
+    private final Vector3f tickLocation = new Vector3f();
+    private double physicsTime;
+    // Render thread only
+    private double renderTime;
+
+    /** Queues {@code command} for the physics thread; it runs at the start of the next tick. */
+    @Override
+    public void execute(Runnable command) {
+        commands.add(command);
+    }
+
+    /**
+     * Publishes the position of {@code body} from the next tick on; for the dynamic bodies
+     * and characters the render thread needs, so a tick never walks the whole space.
+     */
+    public void track(PhysicsCollisionObject body) {
+        execute(() -> {
+            if (!tracked.contains(body)) tracked.add(body);
+        });
+    }
+
+    /** Stops publishing {@code body} from the next tick on. */
+    public void untrack(PhysicsCollisionObject body) {
+        execute(() -> tracked.remove(body));
+    }
+
+    /**
+     * Also publishes whether {@code character} stands on the ground, from the next tick on
+     * while its rigid body is {@link #track tracked}. BetterCharacterControl updates that
+     * flag during the step, so the render thread must not ask the control itself.
+     */
+    public void trackOnGround(BetterCharacterControl character) {
+        execute(() -> {
+            if (!characters.contains(character)) characters.add(character);
+        });
+    }
+
+    /** Stops publishing the ground state of {@code character} from the next tick on. */
+    public void untrackOnGround(BetterCharacterControl character) {
+        execute(() -> characters.remove(character));
+    }
+
+    /** The tracked bodies. Physics thread only, e.g. from a queued command. */
+    List<PhysicsCollisionObject> trackedBodies() {
+        return tracked;
+    }
+
+    /** Commands not run yet. */
+    public int getPendingCommands() {
+        return commands.size();
+    }
+
+    /**
+     * Time handed to the space for the step being started; call once per frame, after
+     * {@code BulletAppState.render}. Reads until the next call show the bodies as they were
+     * one tick before that much time had passed.
+     */
+    public void advance(float tpf) {
+        Frame f = frame;
+        // The space drops time when a frame needs more substeps than it allows; forget it too
+        renderTime = Math.min(renderTime, f.time + f.step) + tpf;
+    }
+
+    /**
+     * Feet (origin) of {@code body} between the last two ticks; null if the body was not
+     * tracked at the last tick. Render thread.
+     */
+    public Vector3f getLocation(PhysicsCollisionObject body, Vector3f store) {
+        Frame f = frame;
+        int i = f.indexOf(body, 0);
+        if (i < 0) return null;
+        if (store == null) store = new Vector3f();
+        float a = (float) Math.max(0, Math.min(1, (renderTime - f.time) / f.step));
+        int o = i * 3;
+        return store.set(f.prev[o] + (f.cur[o] - f.prev[o]) * a,
+                f.prev[o + 1] + (f.cur[o + 1] - f.prev[o + 1]) * a,
+                f.prev[o + 2] + (f.cur[o + 2] - f.prev[o + 2]) * a);
+    }
+
+    /**
+     * Whether {@code body} stood on the ground at the end of the last tick; false if it is
+     * not the rigid body of a character {@link #trackOnGround tracked} then. Render thread.
+     */
+    public boolean isOnGround(PhysicsCollisionObject body) {
+        Frame f = frame;
+        int i = f.indexOf(body, 0);
+        return i >= 0 && f.onGround[i];
+    }
+
+    /** The last published frame, for callers that want every body at once. */
+    Frame frame() {
+        return frame;
+    }
+
+    @Override
+    public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+        for (Runnable command = commands.poll(); command != null; command = commands.poll()) {
+            command.run();
+        }
+    }
+
+    @Override
+    public void physicsTick(PhysicsSpace space, float timeStep) {
+        physicsTime += timeStep;
+        // A new frame per tick rather than reused buffers, so a reader never sees one half written
+        Frame last = frame;
+        int n = tracked.size();
+        PhysicsCollisionObject[] bodies = tracked.toArray(new PhysicsCollisionObject[n]);
+        float[] prev = new float[n * 3], cur = new float[n * 3];
+        boolean[] onGround = new boolean[n];
+        for (BetterCharacterControl character : characters) {
+            int i = tracked.indexOf(character.getRigidBody());
+            if (i >= 0) onGround[i] = character.isOnGround();
+        }
+        for (int i = 0; i < n; i++) {
+            Vector3f p = bodies[i].getPhysicsLocation(tickLocation);
+            int o = i * 3;
+            cur[o] = p.x;
+            cur[o + 1] = p.y;
+            cur[o + 2] = p.z;
+            int j = last.indexOf(bodies[i], i);
+            if (j >= 0 && !warped(last.cur, j * 3, p)) System.arraycopy(last.cur, j * 3, prev, o, 3);
+            else System.arraycopy(cur, o, prev, o, 3);   // new or warped: nothing to blend from
+        }
+        frame = new Frame(bodies, prev, cur, onGround, physicsTime, timeStep);
+    }
+
+    private static boolean warped(float[] xyz, int o, Vector3f p) {
+        float dx = p.x - xyz[o], dy = p.y - xyz[o + 1], dz = p.z - xyz[o + 2];
+        return dx * dx + dy * dy + dz * dz >= WARP_DISTANCE * WARP_DISTANCE;
+    }
+}
@@ -0,0 +1,222 @@
+package jogo.voxel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * One region file: the chunks of a 32 x 8 x 32 (x, y, z) block of chunk coordinates.
+ * <p>
+ * The file starts with a header of one int per chunk, followed by 4 KB sectors. A header entry is 0 for a chunk that was never saved, {@code offset << 8 | sectors}
+ * for a chunk stored in sectors, or {@code (id + 1) << 8} with 0 sectors for a chunk filled
+ * with a single block id, which needs no payload at all. A payload is the length, a codec
+ * byte and the Deflate-compressed {@link ChunkStorage}. Reads decompress straight from a
+ * read-only mapping of the file.
+ * <p>
+ * Saving never overwrites the only copy of a chunk: every payload goes to sectors that the
+ * header on disk does not point at, and the header is kept in memory until {@link #flush},
+ * which forces the payloads, then writes and forces the header, and only then lets the old
+ * sectors be reused. A crash therefore leaves each chunk as of the last flush or newer.
+ * <p>
+ * All methods are thread-safe; compression happens outside the lock.
+ */
+final class RegionFile implements Closeable {
+    static final int SIZE_XZ = 32;
+    static final int SIZE_Y = 8;
+    static final int ENTRIES = SIZE_XZ * SIZE_Y * SIZE_XZ;
+    static final int SECTOR_BYTES = 4096;
+    private static final int HEADER_BYTES = ENTRIES * 4;
+    private static final int HEADER_SECTORS = HEADER_BYTES / SECTOR_BYTES;
+    private static final int MAX_SECTORS = 255;
+    private static final int PAYLOAD_HEADER = 5;   // int length + byte codec
+    private static final byte CODEC_DEFLATE = 1;
+    // Largest serialized ChunkStorage: 4096-entry palette at 16 bits per entry
+    private static final int MAX_RAW_BYTES = 3 + ChunkStorage.VOLUME * 4 + ChunkStorage.VOLUME * 2;
+
+    private final FileChannel channel;
+    private final int[] header = new int[ENTRIES];  // newest entries; the file has them as of the last flush
+    private boolean headerDirty;
+    private MappedByteBuffer mapped;               // read view of the sectors, remapped as the file grows
+    // Sectors the header on disk points at; not reusable until a flush has replaced that header
+    private BitSet committedSectors = new BitSet();
+    // Sectors of the in-memory header plus the committed ones
+    private BitSet usedSectors = new BitSet();
+    private int sectorCount;
+
+    RegionFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        sectorCount = Math.max(HEADER_SECTORS, (int) ((channel.size() + SECTOR_BYTES - 1) / SECTOR_BYTES));
+        // Read into the heap: a writable mapping could reach the disk before the payloads it names
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, buf.position()) < 0) break;   // new or short file: the rest stays 0
+        }
+        buf.clear();
+        buf.asIntBuffer().get(header);
+        for (int i = 0; i < ENTRIES; i++) {
+            int entry = header[i];
+            int sectors = entry & 0xFF;
+            if (sectors == 0) continue;
+            int offset = entry >>> 8;
+            if (offset < HEADER_SECTORS || offset + sectors > sectorCount) {
+                System.err.println("⚠️ " + path.getFileName() + ": entrada " + i + " inválida, chunk descartado");
+                header[i] = 0;
+                headerDirty = true;
+            }
+        }
+        usedSectors = liveSectors();
+        committedSectors = (BitSet) usedSectors.clone();
+    }
+
+    /** Header index of a chunk, from coordinates local to this region. */
+    static int index(int lx, int ly, int lz) {
+        return (ly * SIZE_XZ + lz) * SIZE_XZ + lx;
+    }
+
+    /** The stored chunk, or null if it was never saved. */
+    synchronized ChunkStorage read(int index) throws IOException {
+        int entry = header[index];
+        if (entry == 0) return null;
+        int sectors = entry & 0xFF;
+        int offset = entry >>> 8;
+        if (sectors == 0) return new ChunkStorage(offset - 1);
+
+        ByteBuffer payload = view(offset, sectors);
+        int length = payload.getInt();
+        byte codec = payload.get();
+        if (codec != CODEC_DEFLATE || length <= 0 || length > payload.remaining()) {
+            throw new IOException("Corrupt chunk payload at sector " + offset);
+        }
+        payload.limit(payload.position() + length);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload);
+            byte[] raw = new byte[MAX_RAW_BYTES];
+            int n = inflater.inflate(raw);
+            if (!inflater.finished()) throw new IOException("Corrupt chunk payload at sector " + offset);
+            return ChunkStorage.read(new DataInputStream(new ByteArrayInputStream(raw, 0, n)));
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt chunk payload at sector " + offset, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Stores a chunk; null means all air. */
+    void write(int index, ChunkStorage storage) throws IOException {
+        int uniform = storage == null ? VoxelPalette.AIR_ID : storage.getUniformId();
+        if (uniform >= 0) {
+            synchronized (this) {
+                free(index);
+                header[index] = (uniform + 1) << 8;
+                headerDirty = true;
+            }
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(2048);
+        bytes.write(new byte[PAYLOAD_HEADER]);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            storage.write(out);
+        } finally {
+            deflater.end();
+        }
+        int sectors = (bytes.size() + SECTOR_BYTES - 1) / SECTOR_BYTES;
+        if (sectors > MAX_SECTORS) throw new IOException("Chunk too large for a region file: " + bytes.size() + " bytes");
+        // Whole sectors, so the read mapping never extends past the end of the file
+        ByteBuffer buf = ByteBuffer.allocate(sectors * SECTOR_BYTES);
+        buf.put(bytes.toByteArray());
+        buf.putInt(0, bytes.size() - PAYLOAD_HEADER).put(4, CODEC_DEFLATE);
+        buf.clear();
+
+        synchronized (this) {
+            // Never over the old copy, which the header on disk may still point at
+            int offset = allocate(sectors);
+            long pos = (long) offset * SECTOR_BYTES;
+            while (buf.hasRemaining()) pos += channel.write(buf, pos);
+            free(index);
+            header[index] = offset << 8 | sectors;
+            headerDirty = true;
+        }
+    }
+
+    /**
+     * Makes every write so far durable: forces the payloads, then writes and forces the
+     * header, and only then frees the sectors the previous header pointed at.
+     */
+    synchronized void flush() throws IOException {
+        if (!headerDirty) return;
+        channel.force(false);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES);
+        buf.asIntBuffer().put(header);
+        long pos = 0;
+        while (buf.hasRemaining()) pos += channel.write(buf, pos);
+        channel.force(false);
+        headerDirty = false;
+        usedSectors = liveSectors();
+        committedSectors = (BitSet) usedSectors.clone();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private ByteBuffer view(int offset, int sectors) throws IOException {
+        long end = (long) (offset + sectors) * SECTOR_BYTES;
+        if (mapped == null || mapped.capacity() < end) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) sectorCount * SECTOR_BYTES);
+        }
+        return mapped.duplicate().position(offset * SECTOR_BYTES).limit((int) end).slice();
+    }
+
+    // Drops a chunk's sectors from the in-memory header; the committed ones stay used until a flush
+    private void free(int index) {
+        int entry = header[index];
+        int sectors = entry & 0xFF;
+        int offset = entry >>> 8;
+        for (int s = offset; s < offset + sectors; s++) {
+            if (!committedSectors.get(s)) usedSectors.clear(s);
+        }
+        header[index] = 0;
+    }
+
+    // Header sectors plus every sector the in-memory header points at
+    private BitSet liveSectors() {
+        BitSet live = new BitSet(sectorCount);
+        live.set(0, HEADER_SECTORS);
+        for (int entry : header) {
+            int sectors = entry & 0xFF;
+            if (sectors > 0) live.set(entry >>> 8, (entry >>> 8) + sectors);
+        }
+        return live;
+    }
+
+    // First run of free sectors long enough, else the end of the file
+    private int allocate(int sectors) {
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (true) {
+            int end = usedSectors.nextSetBit(start);
+            if (end < 0 || end - start >= sectors) break;
+            start = usedSectors.nextClearBit(end);
+        }
+        usedSectors.set(start, start + sectors);
+        sectorCount = Math.max(sectorCount, start + sectors);
+        return start;
+    }
+}
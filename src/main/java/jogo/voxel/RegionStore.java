@@ -0,0 +1,241 @@
+package jogo.voxel;
+
+import jogo.util.LongMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Saved chunks of one world, spread over {@link RegionFile}s in a directory.
+ * Loads run on the caller's thread; saves are queued to a single writer thread, and a chunk
+ * that is still queued is served from memory so a load never sees an older version.
+ * Saving a chunk that is already queued only swaps in the newer copy, so however fast the
+ * edits come the queue never holds more than one entry per chunk.
+ * <p>
+ * Only edited chunks are stored; everything else is regenerated from the seed. A
+ * {@code world.properties} file, written once when the directory is new, records the seed and
+ * generator version the edits were made on; a save from another seed or version is refused.
+ */
+final class RegionStore implements Closeable {
+    private final Path directory;
+    private final LongMap<RegionFile> regions = new LongMap<>();        // guarded by itself
+    private final ConcurrentHashMap<Long, ChunkStorage> pending = new ConcurrentHashMap<>();
+    private final ExecutorService writer;
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger coalesced = new AtomicInteger();
+    // Chunks (cx, cy, cz) whose write failed; they stay in pending until a retry succeeds.
+    // Writer thread only
+    private final List<int[]> failedChunks = new ArrayList<>();
+
+    RegionStore(Path directory, long seed, int generatorVersion) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        checkStamp(seed, generatorVersion);
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "RegionWriter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    /** The saved chunk, or null if it was never saved (or could not be read). */
+    ChunkStorage load(int cx, int cy, int cz) {
+        ChunkStorage queued = pending.get(chunkKey(cx, cy, cz));
+        if (queued != null) return queued.snapshot();
+        try {
+            RegionFile region = region(cx, cy, cz, false);
+            return region == null ? null : region.read(localIndex(cx, cy, cz));
+        } catch (IOException e) {
+            System.err.println("⚠️ Erro a ler chunk " + cx + "," + cy + "," + cz + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Queues a chunk for writing. {@code storage} must not change afterwards; null means all air. */
+    void save(int cx, int cy, int cz, ChunkStorage storage) {
+        long key = chunkKey(cx, cy, cz);
+        ChunkStorage queued = storage != null ? storage : new ChunkStorage(VoxelPalette.AIR_ID);
+        if (pending.put(key, queued) == null) {
+            writer.execute(() -> write(cx, cy, cz, key));
+        } else {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    // Writer thread: writes the newest queued copy, and again if a newer one came meanwhile.
+    // A copy that fails to write stays queued, so loads still see it and the next flush retries
+    private void write(int cx, int cy, int cz, long key) {
+        ChunkStorage storage;
+        do {
+            storage = pending.get(key);
+            try {
+                region(cx, cy, cz, true).write(localIndex(cx, cy, cz), storage);
+                written.incrementAndGet();
+            } catch (IOException e) {
+                System.err.println("⚠️ Erro a guardar chunk " + cx + "," + cy + "," + cz + ": " + e.getMessage());
+                failedChunks.add(new int[]{cx, cy, cz});
+                return;
+            }
+        } while (!pending.remove(key, storage));
+    }
+
+    // Writer thread: tries the failed chunks again, with whatever copy is queued for them now
+    private void retryFailed() {
+        if (failedChunks.isEmpty()) return;
+        List<int[]> retry = new ArrayList<>(failedChunks);
+        failedChunks.clear();
+        for (int[] c : retry) write(c[0], c[1], c[2], chunkKey(c[0], c[1], c[2]));
+    }
+
+    /**
+     * Completes on the writer thread once everything queued so far is written and forced to
+     * disk. Chunks whose write failed earlier are tried again first; completes exceptionally
+     * if one still fails (it stays queued for the next flush) or a region flush fails.
+     */
+    CompletableFuture<Void> flushAsync() {
+        return CompletableFuture.runAsync(() -> {
+            retryFailed();
+            IOException failure = null;
+            synchronized (regions) {
+                for (RegionFile region : openRegions()) {
+                    try {
+                        region.flush();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) throw new UncheckedIOException("Erro a gravar região", failure);
+            if (!failedChunks.isEmpty()) throw new IllegalStateException(failedChunks.size() + " chunks não foram escritos");
+        }, writer);
+    }
+
+    /** Blocks until every queued save is written and forced to disk. */
+    void flush() {
+        try {
+            flushAsync().get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Region writer failed", e);
+        }
+    }
+
+    /** Chunks waiting for the writer thread. */
+    int getQueuedCount() {
+        return pending.size();
+    }
+
+    /** Chunks written to disk so far. */
+    int getWrittenCount() {
+        return written.get();
+    }
+
+    /** Saves that replaced a still-queued copy of the same chunk instead of adding work. */
+    int getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /** Writes everything still queued and closes the files. */
+    @Override
+    public void close() throws IOException {
+        writer.execute(this::retryFailed);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.err.println("⚠️ Gravação do mundo não terminou a tempo");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (regions) {
+            IOException failure = null;
+            for (RegionFile region : openRegions()) {
+                try {
+                    region.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            regions.clear();
+            if (failure != null) throw failure;
+        }
+    }
+
+    // Edited chunks are stored whole and the rest is regenerated, so edits made on another
+    // seed or generator would not line up with the terrain around them. The stamp is never
+    // rewritten: opening such a save fails and leaves it as it was.
+    private void checkStamp(long seed, int generatorVersion) throws IOException {
+        Path file = directory.resolve("world.properties");
+        Properties stamp = new Properties();
+        if (Files.exists(file)) {
+            try (Reader in = Files.newBufferedReader(file)) {
+                stamp.load(in);
+            }
+            String savedSeed = stamp.getProperty("seed");
+            String savedVersion = stamp.getProperty("generatorVersion");
+            if (!String.valueOf(seed).equals(savedSeed) || !String.valueOf(generatorVersion).equals(savedVersion)) {
+                throw new IOException("mundo guardado com seed " + savedSeed + " / gerador v" + savedVersion
+                        + " (atual: " + seed + " / v" + generatorVersion + ")");
+            }
+            return;
+        }
+        stamp.setProperty("seed", String.valueOf(seed));
+        stamp.setProperty("generatorVersion", String.valueOf(generatorVersion));
+        try (Writer out = Files.newBufferedWriter(file)) {
+            stamp.store(out, "Voxel world save");
+        }
+    }
+
+    private List<RegionFile> openRegions() {
+        List<RegionFile> list = new ArrayList<>(regions.size());
+        regions.forEachValue(list::add);
+        return list;
+    }
+
+    private RegionFile region(int cx, int cy, int cz, boolean create) throws IOException {
+        int rx = Math.floorDiv(cx, RegionFile.SIZE_XZ);
+        int ry = Math.floorDiv(cy, RegionFile.SIZE_Y);
+        int rz = Math.floorDiv(cz, RegionFile.SIZE_XZ);
+        long key = regionKey(rx, ry, rz);
+        synchronized (regions) {
+            RegionFile region = regions.get(key);
+            if (region == null) {
+                Path file = directory.resolve("r." + rx + "." + ry + "." + rz + ".vxr");
+                if (!create && !Files.exists(file)) return null;
+                region = new RegionFile(file);
+                regions.put(key, region);
+            }
+            return region;
+        }
+    }
+
+    private static int localIndex(int cx, int cy, int cz) {
+        return RegionFile.index(Math.floorMod(cx, RegionFile.SIZE_XZ), Math.floorMod(cy, RegionFile.SIZE_Y),
+                Math.floorMod(cz, RegionFile.SIZE_XZ));
+    }
+
+    // 26 bits for x and z, 12 for y
+    private static long chunkKey(int cx, int cy, int cz) {
+        return ((long) cx << 38) | ((long) (cy & 0xFFF) << 26) | (cz & 0x3FFFFFFL);
+    }
+
+    private static long regionKey(int rx, int ry, int rz) {
+        return ((long) rx << 40) | ((long) (ry & 0xFFFF) << 24) | (rz & 0xFFFFFFL);
+    }
+}
@@ -17,6 +17,12 @@ public abstract class VoxelBlockType {
     /** Whether this block is physically solid (collides/occludes). */
     public boolean isSolid() { return true; }
 
+    /** Whether light and sight stop at this block; see-through blocks such as leaves are not. */
+    public boolean isOpaque() { return isSolid(); }
+
+    /** Part of a plant (trunks, leaves): surface queries looking for the ground skip it. */
+    public boolean isFoliage() { return false; }
+
     /**
      * Returns the Material for this block type. Override in subclasses for custom materials.
      */
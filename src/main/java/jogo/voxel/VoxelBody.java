@@ -0,0 +1,91 @@
+package jogo.voxel;
+
+import com.jme3.math.Vector3f;
+
+/**
+ * A character as an axis-aligned box walking on the voxels, moved by a {@link VoxelMotor}
+ * instead of a Bullet body. The position is the centre of the box's bottom face (the feet).
+ * Callers set the wanted horizontal velocity and ask for jumps; the motor applies gravity,
+ * collisions, steps and the speed of the block underneath on its next ticks.
+ */
+public final class VoxelBody {
+    final float halfWidth, height;
+    // Positions are doubles so collisions stay exact far from the origin
+    double x, y, z;
+    double prevX, prevY, prevZ;   // at the start of the last tick, for interpolation
+    float vx, vy, vz;
+    float walkX, walkZ;
+    float stepHeight = 0.6f;
+    float jumpSpeed = 7.75f;      // about 1.25 blocks high with the default gravity
+    float groundSpeed = 1f;       // getSpeedModifier() of the block under the feet, 1 in the air
+    boolean jumpRequested;
+    boolean onGround;
+
+    /** @param halfWidth half the box's side on x and z; @param height from feet to top */
+    public VoxelBody(float halfWidth, float height) {
+        if (halfWidth <= 0 || height <= 0) throw new IllegalArgumentException("Body size must be positive: " + halfWidth + " x " + height);
+        this.halfWidth = halfWidth;
+        this.height = height;
+    }
+
+    /** Moves the feet to (x, y, z) at once, without colliding, and stops the body. */
+    public void warp(float x, float y, float z) {
+        this.x = prevX = x;
+        this.y = prevY = y;
+        this.z = prevZ = z;
+        vx = vy = vz = 0;
+        onGround = false;
+    }
+
+    /** Wanted horizontal velocity in m/s, before the ground's speed modifier. */
+    public void setWalkDirection(float vx, float vz) {
+        walkX = vx;
+        walkZ = vz;
+    }
+
+    /** Jumps on the next tick that starts on the ground; ignored in the air. */
+    public void jump() {
+        jumpRequested = true;
+    }
+
+    public boolean isOnGround() {
+        return onGround;
+    }
+
+    /** Highest ledge climbed without jumping; 0 turns stepping off. */
+    public void setStepHeight(float stepHeight) {
+        this.stepHeight = Math.max(0, stepHeight);
+    }
+
+    public float getStepHeight() {
+        return stepHeight;
+    }
+
+    /** Upward speed given by {@link #jump}, in m/s. */
+    public void setJumpSpeed(float jumpSpeed) {
+        this.jumpSpeed = jumpSpeed;
+    }
+
+    public float getJumpSpeed() {
+        return jumpSpeed;
+    }
+
+    public float getHalfWidth() {
+        return halfWidth;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+
+    /** Feet position after the last tick. */
+    public Vector3f getLocation(Vector3f store) {
+        if (store == null) store = new Vector3f();
+        return store.set((float) x, (float) y, (float) z);
+    }
+
+    public Vector3f getVelocity(Vector3f store) {
+        if (store == null) store = new Vector3f();
+        return store.set(vx, vy, vz);
+    }
+}
@@ -0,0 +1,246 @@
+package jogo.voxel;
+
+import com.jme3.math.Vector3f;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves {@link VoxelBody} boxes through the world by asking it which voxels are solid,
+ * with no Bullet bodies involved: cheap enough for hundreds of NPCs. Runs at a fixed tick
+ * rate; each tick a body gets gravity, a jump if asked for while on the ground, and its
+ * walk velocity scaled by the {@link VoxelBlockType#getSpeedModifier speed modifier} of
+ * the block under it. The box then moves one axis at a time (y, x, z), each move swept
+ * against the voxels it crosses so it stops flush with the first solid one however fast
+ * it goes. A box blocked sideways while on the ground tries again lifted by its step
+ * height, so it walks up ledges that low.
+ * <p>
+ * Bodies whose column is not loaded wait in place. Ticks allocate nothing. Render thread
+ * only, like the world.
+ */
+public final class VoxelMotor {
+    public static final float TICK = 1 / 60f;
+    // A long frame runs at most this many ticks and drops the rest, so a stall cannot snowball
+    private static final int MAX_TICKS = 5;
+    private static final double EPS = 1e-6;
+    // How fast the velocity reaches the walk velocity (1/s): quick on the ground, slow in the air
+    private static final float GROUND_ACCEL = 20f;
+    private static final float AIR_ACCEL = 2f;
+    private static final float MAX_FALL_SPEED = 60f;
+
+    private final VoxelWorld world;
+    private final VoxelPalette palette;
+    private final List<VoxelBody> bodies = new ArrayList<>();
+    private float gravity = 24f;   // same as the player's character control
+    private float accumulator;
+
+    public VoxelMotor(VoxelWorld world) {
+        this.world = world;
+        this.palette = world.getPalette();
+    }
+
+    public void add(VoxelBody body) {
+        if (!bodies.contains(body)) bodies.add(body);
+    }
+
+    public void remove(VoxelBody body) {
+        bodies.remove(body);
+    }
+
+    public int getBodyCount() {
+        return bodies.size();
+    }
+
+    /** Downward acceleration in m/s². */
+    public void setGravity(float gravity) {
+        this.gravity = gravity;
+    }
+
+    public float getGravity() {
+        return gravity;
+    }
+
+    /** Runs the whole ticks that fit in the time since the last call; returns how many ran. */
+    public int update(float tpf) {
+        accumulator += tpf;
+        int ticks = 0;
+        while (accumulator >= TICK && ticks < MAX_TICKS) {
+            accumulator -= TICK;
+            for (int i = 0; i < bodies.size(); i++) step(bodies.get(i), TICK);
+            ticks++;
+        }
+        if (ticks == MAX_TICKS) accumulator = Math.min(accumulator, TICK);
+        return ticks;
+    }
+
+    /**
+     * Feet position between the last two ticks, by the share of a tick the accumulator
+     * holds; smooth on screen whatever the frame rate.
+     */
+    public Vector3f interpolate(VoxelBody body, Vector3f store) {
+        if (store == null) store = new Vector3f();
+        double a = Math.min(1f, accumulator / TICK);
+        return store.set((float) (body.prevX + (body.x - body.prevX) * a),
+                (float) (body.prevY + (body.y - body.prevY) * a),
+                (float) (body.prevZ + (body.z - body.prevZ) * a));
+    }
+
+    /** One tick of {@code dt} seconds for one body. */
+    void step(VoxelBody b, float dt) {
+        b.prevX = b.x;
+        b.prevY = b.y;
+        b.prevZ = b.z;
+        if (!world.hasColumnAt((int) Math.floor(b.x), (int) Math.floor(b.z))) return;
+
+        // Velocity eases towards the walk velocity; sand and the like slow it down
+        float accel = b.onGround ? GROUND_ACCEL : AIR_ACCEL;
+        float blend = Math.min(1f, accel * dt);
+        b.vx += (b.walkX * b.groundSpeed - b.vx) * blend;
+        b.vz += (b.walkZ * b.groundSpeed - b.vz) * blend;
+        if (b.jumpRequested && b.onGround) b.vy = b.jumpSpeed;
+        b.jumpRequested = false;
+        b.vy = Math.max(b.vy - gravity * dt, -MAX_FALL_SPEED);
+
+        double dy = b.vy * dt;
+        double my = clipY(b, b.x, b.y, b.z, dy);
+        b.y += my;
+        b.onGround = my != dy && dy < 0;
+        if (my != dy) b.vy = 0;
+        // Every tick, so walking from sand onto grass, or off it into the air, counts at once
+        b.groundSpeed = b.onGround ? groundSpeed(b) : 1f;
+
+        double dx = b.vx * dt;
+        double mx = clipX(b, b.x, b.y, b.z, dx);
+        if (mx != dx && b.onGround && b.stepHeight > 0) mx = stepX(b, mx, dx);
+        else b.x += mx;
+        if (mx != dx) b.vx = 0;
+
+        double dz = b.vz * dt;
+        double mz = clipZ(b, b.x, b.y, b.z, dz);
+        if (mz != dz && b.onGround && b.stepHeight > 0) mz = stepZ(b, mz, dz);
+        else b.z += mz;
+        if (mz != dz) b.vz = 0;
+    }
+
+    // Blocked along x: tries the same move lifted by up to the step height, then settles
+    // back down. Moves the body either way and returns the x distance covered
+    private double stepX(VoxelBody b, double mx, double dx) {
+        double lift = clipY(b, b.x, b.y, b.z, b.stepHeight);
+        double sx = lift > EPS ? clipX(b, b.x, b.y + lift, b.z, dx) : mx;
+        if (Math.abs(sx) <= Math.abs(mx) + EPS) {
+            b.x += mx;
+            return mx;
+        }
+        b.x += sx;
+        b.y += lift + clipY(b, b.x, b.y + lift, b.z, -lift);
+        return sx;
+    }
+
+    private double stepZ(VoxelBody b, double mz, double dz) {
+        double lift = clipY(b, b.x, b.y, b.z, b.stepHeight);
+        double sz = lift > EPS ? clipZ(b, b.x, b.y + lift, b.z, dz) : mz;
+        if (Math.abs(sz) <= Math.abs(mz) + EPS) {
+            b.z += mz;
+            return mz;
+        }
+        b.z += sz;
+        b.y += lift + clipY(b, b.x, b.y + lift, b.z, -lift);
+        return sz;
+    }
+
+    // Each clip sweeps the box at (x, y, z) along one axis by d and returns how far it gets
+    // before touching a solid voxel. Only voxels ahead of the leading face count, so a box
+    // already overlapping a block (one placed on it) can still move out
+
+    private double clipX(VoxelBody b, double x, double y, double z, double d) {
+        if (d == 0) return 0;
+        int y0 = floor(y + EPS), y1 = floor(y + b.height - EPS);
+        int z0 = floor(z - b.halfWidth + EPS), z1 = floor(z + b.halfWidth - EPS);
+        if (d > 0) {
+            double face = x + b.halfWidth;
+            for (int c = ceil(face - EPS), end = ceil(face + d) - 1; c <= end; c++) {
+                if (solidSlab(c, c, y0, y1, z0, z1)) return Math.max(0, c - face);
+            }
+        } else {
+            double face = x - b.halfWidth;
+            for (int c = floor(face + EPS) - 1, end = floor(face + d); c >= end; c--) {
+                if (solidSlab(c, c, y0, y1, z0, z1)) return Math.min(0, c + 1 - face);
+            }
+        }
+        return d;
+    }
+
+    private double clipZ(VoxelBody b, double x, double y, double z, double d) {
+        if (d == 0) return 0;
+        int y0 = floor(y + EPS), y1 = floor(y + b.height - EPS);
+        int x0 = floor(x - b.halfWidth + EPS), x1 = floor(x + b.halfWidth - EPS);
+        if (d > 0) {
+            double face = z + b.halfWidth;
+            for (int c = ceil(face - EPS), end = ceil(face + d) - 1; c <= end; c++) {
+                if (solidSlab(x0, x1, y0, y1, c, c)) return Math.max(0, c - face);
+            }
+        } else {
+            double face = z - b.halfWidth;
+            for (int c = floor(face + EPS) - 1, end = floor(face + d); c >= end; c--) {
+                if (solidSlab(x0, x1, y0, y1, c, c)) return Math.min(0, c + 1 - face);
+            }
+        }
+        return d;
+    }
+
+    private double clipY(VoxelBody b, double x, double y, double z, double d) {
+        if (d == 0) return 0;
+        int x0 = floor(x - b.halfWidth + EPS), x1 = floor(x + b.halfWidth - EPS);
+        int z0 = floor(z - b.halfWidth + EPS), z1 = floor(z + b.halfWidth - EPS);
+        if (d > 0) {
+            double face = y + b.height;
+            for (int c = ceil(face - EPS), end = ceil(face + d) - 1; c <= end; c++) {
+                if (solidSlab(x0, x1, c, c, z0, z1)) return Math.max(0, c - face);
+            }
+        } else {
+            double face = y;
+            for (int c = floor(face + EPS) - 1, end = floor(face + d); c >= end; c--) {
+                if (solidSlab(x0, x1, c, c, z0, z1)) return Math.min(0, c + 1 - face);
+            }
+        }
+        return d;
+    }
+
+    // Speed modifier of the block a grounded body stands on: the one under the centre of its
+    // feet, or, with the centre over an edge, the first solid one under the rest of the box
+    private float groundSpeed(VoxelBody b) {
+        int y = floor(b.y + EPS) - 1;
+        int id = world.getBlockId(floor(b.x), y, floor(b.z));
+        if (!palette.isSolid(id)) {
+            id = firstSolid(floor(b.x - b.halfWidth + EPS), floor(b.x + b.halfWidth - EPS), y, y,
+                    floor(b.z - b.halfWidth + EPS), floor(b.z + b.halfWidth - EPS));
+        }
+        return palette.getSpeedModifier(id);   // -1 (nothing solid) walks at normal speed
+    }
+
+    // Any solid voxel in the inclusive box
+    private boolean solidSlab(int x0, int x1, int y0, int y1, int z0, int z1) {
+        return firstSolid(x0, x1, y0, y1, z0, z1) >= 0;
+    }
+
+    // First solid voxel id in the inclusive box, -1 if none
+    private int firstSolid(int x0, int x1, int y0, int y1, int z0, int z1) {
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    int id = world.getBlockId(x, y, z);
+                    if (palette.isSolid(id)) return id;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int floor(double v) {
+        return (int) Math.floor(v);
+    }
+
+    private static int ceil(double v) {
+        return (int) Math.ceil(v);
+    }
+}
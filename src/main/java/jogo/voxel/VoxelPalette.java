@@ -9,26 +9,71 @@ import jogo.voxel.blocks.LeavesBlockType;
 import jogo.voxel.blocks.GrassBlockType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class VoxelPalette {
     private final List<VoxelBlockType> types = new ArrayList<>();
+    /** Ids are stored in up to 16 bits per voxel (see ChunkStorage). */
+    public static final int MAX_TYPES = 1 << 16;
 
-    public byte register(VoxelBlockType type) {
+    // isSolid(), isOpaque() and ground (solid, not foliage) per id, cached so meshing and
+    // heightmap updates do not make a virtual call per voxel
+    private boolean[] solid = new boolean[16];
+    private boolean[] opaque = new boolean[16];
+    private boolean[] ground = new boolean[16];
+    private float[] speed = new float[16];   // getSpeedModifier(), for the character motor
+    private final BlockMaterials materials = new BlockMaterials(this);
+
+    /**
+     * Registers a block type and returns its id. Ids above 255 do not fit the byte-based
+     * accessors; use the int ones ({@link VoxelWorld#getBlockId}, {@link VoxelWorld#setBlockId}).
+     */
+    public int register(VoxelBlockType type) {
+        int id = types.size();
+        if (id >= MAX_TYPES) throw new IllegalStateException("Too many voxel block types (>" + MAX_TYPES + ")");
         types.add(type);
-        int id = types.size() - 1;
-        if (id > 255) throw new IllegalStateException("Too many voxel block types (>255)");
-        return (byte) id;
+        if (id >= solid.length) {
+            solid = Arrays.copyOf(solid, solid.length * 2);
+            opaque = Arrays.copyOf(opaque, solid.length);
+            ground = Arrays.copyOf(ground, solid.length);
+            speed = Arrays.copyOf(speed, solid.length);
+        }
+        solid[id] = type.isSolid();
+        opaque[id] = type.isOpaque();
+        ground[id] = type.isSolid() && !type.isFoliage();
+        speed[id] = type.getSpeedModifier();
+        return id;
     }
 
     public VoxelBlockType get(byte id) {
-        int idx = Byte.toUnsignedInt(id);
-        if (idx < 0 || idx >= types.size()) return new AirBlockType();
-        return types.get(idx);
+        return get(Byte.toUnsignedInt(id));
+    }
+
+    public VoxelBlockType get(int id) {
+        if (id < 0 || id >= types.size()) return new AirBlockType();
+        return types.get(id);
     }
 
     public int size() { return types.size(); }
 
+    /** Shared per-type Materials used by all chunks. */
+    public BlockMaterials getMaterials() { return materials; }
+
+    /** Same as {@code get(id).isSolid()}, without the lookup; unknown ids are not solid. */
+    public boolean isSolid(byte id) { return isSolid(Byte.toUnsignedInt(id)); }
+
+    public boolean isSolid(int id) { return id < solid.length && solid[id]; }
+
+    /** Same as {@code get(id).isOpaque()}; unknown ids are not opaque. */
+    public boolean isOpaque(int id) { return id < opaque.length && opaque[id]; }
+
+    /** Solid and not foliage: what the ground is made of. */
+    public boolean isGround(int id) { return id < ground.length && ground[id]; }
+
+    /** Same as {@code get(id).getSpeedModifier()}; unknown ids walk at normal speed. */
+    public float getSpeedModifier(int id) { return id >= 0 && id < speed.length && id < types.size() ? speed[id] : 1f; }
+
     public static VoxelPalette defaultPalette() {
         VoxelPalette p = new VoxelPalette();
         p.register(new AirBlockType());   // id 0
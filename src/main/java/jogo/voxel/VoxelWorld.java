@@ -1,7 +1,11 @@
 package jogo.voxel;
 
 import com.jme3.asset.AssetManager;
+import com.jme3.bounding.BoundingBox;
 import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.objects.PhysicsRigidBody;
 import com.jme3.material.Material;
 import com.jme3.material.RenderState;
 import com.jme3.math.ColorRGBA;
@@ -13,9 +17,14 @@ import com.jme3.scene.Node;
 import com.jme3.texture.Texture2D;
 import jogo.util.ProcTextures;
 import jogo.util.Hit;
-import java.util.Random;
+import jogo.util.LongMap;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import jogo.voxel.generation.CoordHash;
+import jogo.voxel.generation.DensityGenerator;
 import jogo.voxel.generation.TreeGenerator;
 import jogo.voxel.generation.Tree;
 import jogo.voxel.generation.FlowerGenerator;
@@ -31,88 +40,213 @@ import jogo.gameobject.Flower;
 
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 public class VoxelWorld {
     private final AssetManager assetManager;
+    // sizeX/sizeZ only apply to bounded worlds; unbounded ones stream columns around the player
     private final int sizeX, sizeY, sizeZ;
+    private final boolean bounded;
     private final VoxelPalette palette;
 
     private final Node node = new Node("VoxelWorld");
-    private final Map<Byte, Geometry> geoms = new HashMap<>();
     private final Map<Byte, Material> materials = new HashMap<>();
 
     private boolean lit = true;       // Shading: On by default
     private boolean wireframe = false; // Wireframe: Off by default
     private boolean culling = true;   // Culling: On by default
+    private boolean greedyMeshing = true; // Greedy meshing: On by default (G toggles)
+    private boolean textureArrayMode = false; // One geometry per chunk via a TextureArray (T toggles)
     private int groundHeight = 8; // baseline Y level
 
-    // Chunked world data
+    // Chunked world data: loaded chunk columns by packed (cx, cz)
     private final int chunkSize = Chunk.SIZE;
     private final int chunkCountX, chunkCountY, chunkCountZ;
-    private final Chunk[][][] chunks;
+    private final LongMap<ChunkColumn> columns = new LongMap<>();
+
+    // Streaming (unbounded worlds): columns within viewRadius are meshed, two more rings are
+    // generated so trees and border faces are final before meshing
+    private int viewRadius = 6;
+    private float streamBudgetMs = 4f;
+    private final List<ChunkColumn> unloadScratch = new ArrayList<>();
+
+    // Saved chunks (null = nothing is loaded from or written to disk)
+    private RegionStore regionStore;
+    // Chunks edited since their last save, fed by writeBlock and drained by saveChanges
+    private final List<Chunk> unsavedChunks = new ArrayList<>();
 
     private final long WORLD_SEED = 12345L;
+    // Bump whenever terrain or tree generation changes: saves only hold edited chunks and
+    // rely on the generator to recreate the rest
+    private static final int GENERATOR_VERSION = 4;
+    private final DensityGenerator terrainGenerator;
+    // Per-thread scratch for generation: the ids of one column and of one chunk
+    private final ThreadLocal<int[]> genColumnIds;
+    private static final ThreadLocal<int[]> GEN_IDS = ThreadLocal.withInitial(() -> new int[ChunkStorage.VOLUME]);
+    // Columns are generated as independent fork-join tasks; any parallelism gives the same world
+    private ForkJoinPool generationPool = ForkJoinPool.commonPool();
+    private final List<ChunkColumn> generationBatch = new ArrayList<>();
+    private static final double TREE_CHANCE = 0.05;
+    private static final int TREE_SPACING = 5;   // no two trees closer than this (Chebyshev)
+    private static final int TREE_REACH = 2;     // leaves stick out this far from the trunk
+    private static final int SALT_TREES = 1;
     private List<int[]> arvoresParaPlantar = new ArrayList<>();
     private TreeGenerator treeGenerator;
     private FlowerGenerator flowerGenerator;
 
     private List<Flower> plantedFlowers = new ArrayList<>();
 
+    // Async meshing (null = build synchronously on the calling thread)
+    private ChunkMeshService meshService;
+    // Chunk bodies only exist within physicsRadius chunks of a dynamic body (player, ...);
+    // shapes of the chunks left behind stay cached in case something comes back
+    private static final int SHAPE_CACHE_SIZE = 512;
+    private int physicsRadius = 1;
+    private final ChunkShapeCache shapeCache = new ChunkShapeCache(SHAPE_CACHE_SIZE);
+    private final Set<Chunk> physicsChunks = new LinkedHashSet<>();   // chunks with a body
+    private final Set<PhysicsCollisionObject> trackedBodies = new LinkedHashSet<>();   // see trackBody
+    private int[] bodyCells = new int[0];   // cx, cy, cz of each dynamic body at the last update
+    private int bodyCellCount = 0;
+    private final Vector3f bodyLocation = new Vector3f();
+    // Set when Bullet steps on its own thread: calls into the space are queued for its next
+    // tick and body positions come from its snapshots (null = call and read the space directly)
+    private PhysicsHandoff physicsHandoff;
+    private int staleMeshResults = 0;
+    private int lastRebuildCount = 0;
+    private int skippedEmptyMeshes = 0;
+    private int skippedEnclosedMeshes = 0;
+
+    // Chunks waiting for a rebuild, fed by Chunk.markDirty; drained nearest/visible first
+    private final List<Chunk> dirtyQueue = new ArrayList<>();
+    private float rebuildBudgetMs = 4f;
+    private long[] rebuildOrder = new long[0];
+    private final BoundingBox chunkBounds = new BoundingBox();
+
 
     public VoxelWorld(AssetManager assetManager, int sizeX, int sizeY, int sizeZ) {
+        this(assetManager, sizeX, sizeY, sizeZ, true);
+        for (int cx = 0; cx < chunkCountX; cx++) {
+            for (int cz = 0; cz < chunkCountZ; cz++) {
+                ChunkColumn column = newColumn(cx, cz);
+                column.state = ChunkColumn.READY;
+                for (Chunk chunk : column.chunks) dirtyQueue.add(chunk); // chunks start dirty
+            }
+        }
+    }
+
+    private VoxelWorld(AssetManager assetManager, int sizeX, int sizeY, int sizeZ, boolean bounded) {
         this.assetManager = assetManager;
         this.sizeX = sizeX;
         this.sizeY = sizeY;
         this.sizeZ = sizeZ;
+        this.bounded = bounded;
         this.palette = VoxelPalette.defaultPalette();
-        // Remove old vox array
-        // this.vox = new byte[sizeX][sizeY][sizeZ];
         this.chunkCountX = (int) Math.ceil(sizeX / (float) chunkSize);
         this.chunkCountY = (int) Math.ceil(sizeY / (float) chunkSize);
         this.chunkCountZ = (int) Math.ceil(sizeZ / (float) chunkSize);
-        this.chunks = new Chunk[chunkCountX][chunkCountY][chunkCountZ];
-        for (int cx = 0; cx < chunkCountX; cx++)
-            for (int cy = 0; cy < chunkCountY; cy++)
-                for (int cz = 0; cz < chunkCountZ; cz++)
-                    chunks[cx][cy][cz] = new Chunk(cx, cy, cz);
+        this.terrainGenerator = new DensityGenerator(WORLD_SEED, sizeY, groundHeight);
+        this.genColumnIds = ThreadLocal.withInitial(() -> new int[terrainGenerator.columnVolume()]);
         initMaterials();
     }
 
-    // Helper to get chunk and local coordinates
+    /**
+     * A world without horizontal limits. Nothing exists until {@link #generateAround} or
+     * {@link #updateStreaming} loads the columns around a position; memory then depends on
+     * the {@link #setViewRadius view radius}, not on how far the player travelled.
+     */
+    public static VoxelWorld unbounded(AssetManager assetManager, int sizeY) {
+        return new VoxelWorld(assetManager, 0, sizeY, 0, false);
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    private ChunkColumn newColumn(int cx, int cz) {
+        ChunkColumn column = createColumn(cx, cz);
+        columns.put(ChunkColumn.key(cx, cz), column);
+        return column;
+    }
+
+    // A column that is not in the map yet, so a generation task can fill it on its own
+    private ChunkColumn createColumn(int cx, int cz) {
+        Chunk[] stack = new Chunk[chunkCountY];
+        for (int cy = 0; cy < chunkCountY; cy++) {
+            Chunk chunk = new Chunk(cx, cy, cz);
+            chunk.setDirtyListener(this::onChunkDirty);
+            stack[cy] = chunk;
+        }
+        return new ChunkColumn(cx, cz, stack);
+    }
+
+    // Chunks of columns that are not READY yet stay dirty and are queued once they are
+    private void onChunkDirty(Chunk chunk) {
+        ChunkColumn column = columns.get(ChunkColumn.key(chunk.getChunkX(), chunk.getChunkZ()));
+        if (column != null && column.state == ChunkColumn.READY) dirtyQueue.add(chunk);
+    }
+
+    // Helper to get chunk and local coordinates (floor division, so negative coordinates work)
     private Chunk getChunk(int x, int y, int z) {
-        int cx = x / chunkSize;
-        int cy = y / chunkSize;
-        int cz = z / chunkSize;
-        if (cx < 0 || cy < 0 || cz < 0 || cx >= chunkCountX || cy >= chunkCountY || cz >= chunkCountZ) return null;
-        return chunks[cx][cy][cz];
+        return chunkAt(Math.floorDiv(x, chunkSize), Math.floorDiv(y, chunkSize), Math.floorDiv(z, chunkSize));
     }
 
     private int lx(int x) {
-        return x % chunkSize;
+        return Math.floorMod(x, chunkSize);
     }
 
     private int ly(int y) {
-        return y % chunkSize;
+        return Math.floorMod(y, chunkSize);
     }
 
     private int lz(int z) {
-        return z % chunkSize;
+        return Math.floorMod(z, chunkSize);
     }
 
     // Block access
     public byte getBlock(int x, int y, int z) {
+        return (byte) getBlockId(x, y, z);
+    }
+
+    public void setBlock(int x, int y, int z, byte id) {
+        setBlockId(x, y, z, Byte.toUnsignedInt(id));
+    }
+
+    /** Like {@link #getBlock}, for palettes with more than 256 block types. */
+    public int getBlockId(int x, int y, int z) {
         Chunk c = getChunk(x, y, z);
         if (c == null) return VoxelPalette.AIR_ID;
         if (!inBounds(x, y, z)) return VoxelPalette.AIR_ID;
-        return c.get(lx(x), ly(y), lz(z));
+        return c.getId(lx(x), ly(y), lz(z));
     }
 
-    public void setBlock(int x, int y, int z, byte id) {
-        Chunk c = getChunk(x, y, z);
+    public void setBlockId(int x, int y, int z, int id) {
+        writeBlock(x, y, z, id, true);
+    }
+
+    // Generation passes edit=false: those blocks come back from the seed and need no saving
+    private void writeBlock(int x, int y, int z, int id, boolean edit) {
+        if (y < 0 || y >= chunkCountY * chunkSize) return;
+        ChunkColumn column = columns.get(ChunkColumn.key(Math.floorDiv(x, chunkSize), Math.floorDiv(z, chunkSize)));
+        Chunk c = column == null ? null : column.chunks[y / chunkSize];
         if (c != null) {
-            c.set(lx(x), ly(y), lz(z), id);
+            c.setId(lx(x), ly(y), lz(z), id);
+            updateTops(column, lx(x), y, lz(z), id);
+            if (edit) {
+                c.markModified();
+                if (regionStore != null && c.markUnsaved()) unsavedChunks.add(c);
+            }
             c.markDirty();
             // If on chunk edge, mark neighbor dirty
             if (lx(x) == 0) markNeighborChunkDirty(x - 1, y, z);
@@ -124,6 +258,21 @@ public class VoxelWorld {
         }
     }
 
+    private Chunk chunkAt(int cx, int cy, int cz) {
+        if (cy < 0 || cy >= chunkCountY) return null;
+        ChunkColumn column = columns.get(ChunkColumn.key(cx, cz));
+        return column == null ? null : column.chunks[cy];
+    }
+
+    /** Chunk voxels plus the bordering layer of its neighbours, for cross-chunk face culling. */
+    private ChunkSnapshot snapshot(Chunk c) {
+        int cx = c.getChunkX(), cy = c.getChunkY(), cz = c.getChunkZ();
+        return ChunkSnapshot.capture(c,
+                chunkAt(cx - 1, cy, cz), chunkAt(cx + 1, cy, cz),
+                chunkAt(cx, cy - 1, cz), chunkAt(cx, cy + 1, cz),
+                chunkAt(cx, cy, cz - 1), chunkAt(cx, cy, cz + 1));
+    }
+
     private void markNeighborChunkDirty(int x, int y, int z) {
         Chunk n = getChunk(x, y, z);
         if (n != null) n.markDirty();
@@ -135,6 +284,285 @@ public class VoxelWorld {
         return true;
     }
 
+    // --- EDIÇÕES EM BLOCO ---
+    // Agrupadas por chunk: cada chunk é desempacotado uma vez, editado como int[] e reempacotado,
+    // e só no fim se marcam sujos (uma vez cada) os chunks tocados e os vizinhos das faces tocadas
+
+    // Below this many entries in one chunk, an edit list writes voxel by voxel instead of
+    // unpacking and repacking the whole chunk
+    private static final int BULK_REPACK_MIN = ChunkStorage.VOLUME / 4;
+    private static final int FACE_X0 = 1, FACE_X1 = 2, FACE_Y0 = 4, FACE_Y1 = 8, FACE_Z0 = 16, FACE_Z1 = 32;
+
+    private final int[] bulkIds = new int[ChunkStorage.VOLUME];
+
+    private interface Shape {
+        boolean contains(int x, int y, int z);
+    }
+
+    /** Sets every block of the box between two corners (inclusive, any order) to {@code id}; returns the blocks changed. */
+    public int fillBox(int x0, int y0, int z0, int x1, int y1, int z1, int id) {
+        return editBox(x0, y0, z0, x1, y1, z1, null, -1, id);
+    }
+
+    /** Sets every block whose centre is within {@code radius} of block (cx, cy, cz) to {@code id}; returns the blocks changed. */
+    public int fillSphere(int cx, int cy, int cz, float radius, int id) {
+        int r = (int) Math.floor(radius);
+        float r2 = radius * radius;
+        return editBox(cx - r, cy - r, cz - r, cx + r, cy + r, cz + r, (x, y, z) -> {
+            int dx = x - cx, dy = y - cy, dz = z - cz;
+            return dx * dx + dy * dy + dz * dz <= r2;
+        }, -1, id);
+    }
+
+    /** Turns every {@code from} block in the box (inclusive corners) into {@code to}; returns the blocks changed. */
+    public int replace(int x0, int y0, int z0, int x1, int y1, int z1, int from, int to) {
+        return editBox(x0, y0, z0, x1, y1, z1, null, from, to);
+    }
+
+    /** Applies a list of edits; returns the blocks changed. Blocks in unloaded columns are skipped. */
+    public int applyEdits(BlockEdits edits) {
+        return applyEdits(edits, -1);
+    }
+
+    /**
+     * Like {@link #applyEdits(BlockEdits)}, but only writes where the block is currently
+     * {@code onlyReplacing} (e.g. leaves that must not overwrite a trunk); -1 writes anywhere.
+     */
+    public int applyEdits(BlockEdits edits, int onlyReplacing) {
+        int n = edits.size();
+        if (n == 0) return 0;
+        // Counting sort by chunk (stable, so a later entry for the same block still wins)
+        LongMap<int[]> buckets = new LongMap<>();   // column key -> bucket index + 1 per chunk y
+        List<Chunk> chunks = new ArrayList<>();
+        List<ChunkColumn> owners = new ArrayList<>();
+        int[] bucketOf = new int[n];
+        int[] counts = new int[16];
+        long lastKey = 0;
+        int[] column = null;   // buckets of lastKey; runs of edits in one column are the usual case
+        for (int i = 0; i < n; i++) {
+            bucketOf[i] = -1;
+            int x = edits.x(i), y = edits.y(i), z = edits.z(i);
+            if (y < 0 || y >= sizeY || (bounded && (x < 0 || z < 0 || x >= sizeX || z >= sizeZ))) continue;
+            int cx = Math.floorDiv(x, chunkSize), cy = y / chunkSize, cz = Math.floorDiv(z, chunkSize);
+            long key = ChunkColumn.key(cx, cz);
+            if (column == null || key != lastKey) {
+                column = buckets.get(key);
+                if (column == null) {
+                    if (!columns.containsKey(key)) continue;
+                    column = new int[chunkCountY];
+                    buckets.put(key, column);
+                }
+                lastKey = key;
+            }
+            if (column[cy] == 0) {
+                ChunkColumn owner = columns.get(key);
+                chunks.add(owner.chunks[cy]);
+                owners.add(owner);
+                column[cy] = chunks.size();
+                if (chunks.size() > counts.length) counts = Arrays.copyOf(counts, counts.length * 2);
+            }
+            bucketOf[i] = column[cy] - 1;
+            counts[column[cy] - 1]++;
+        }
+        int[] start = new int[chunks.size() + 1];
+        for (int b = 0; b < chunks.size(); b++) start[b + 1] = start[b] + counts[b];
+        int[] order = new int[start[chunks.size()]];
+        int[] fill = Arrays.copyOf(start, chunks.size());
+        for (int i = 0; i < n; i++) {
+            if (bucketOf[i] >= 0) order[fill[bucketOf[i]]++] = i;
+        }
+
+        BulkEdit bulk = new BulkEdit();
+        for (int b = 0; b < chunks.size(); b++) {
+            applyToChunk(bulk, chunks.get(b), owners.get(b), edits, order, start[b], start[b + 1], onlyReplacing);
+        }
+        return bulk.finish();
+    }
+
+    // Edits order[from..to) of one chunk
+    private void applyToChunk(BulkEdit bulk, Chunk chunk, ChunkColumn column, BlockEdits edits,
+                              int[] order, int from, int to, int onlyReplacing) {
+        ColumnChange columnChange = bulk.column(column);
+        boolean repack = to - from >= BULK_REPACK_MIN;
+        if (repack) chunk.copyIds(bulkIds);
+        int changed = 0, faces = 0;
+        for (int o = from; o < to; o++) {
+            int i = order[o];
+            int lx = lx(edits.x(i)), y = edits.y(i), ly = y % chunkSize, lz = lz(edits.z(i)), id = edits.id(i);
+            int index = ChunkStorage.index(lx, ly, lz);
+            int current = repack ? bulkIds[index] : chunk.getId(lx, ly, lz);
+            if (current == id || (onlyReplacing >= 0 && current != onlyReplacing)) continue;
+            if (repack) bulkIds[index] = id;
+            else chunk.setId(lx, ly, lz, id);
+            changed++;
+            faces |= faces(lx, ly, lz);
+            bulk.record(columnChange, lx * chunkSize + lz, y, current, id);
+        }
+        if (changed == 0) return;
+        if (repack) chunk.setIds(bulkIds);
+        bulk.chunkChanged(chunk, faces, changed);
+    }
+
+    private int editBox(int x0, int y0, int z0, int x1, int y1, int z1, Shape shape, int from, int id) {
+        int minX = Math.min(x0, x1), maxX = Math.max(x0, x1);
+        int minY = Math.max(0, Math.min(y0, y1)), maxY = Math.min(sizeY - 1, Math.max(y0, y1));
+        int minZ = Math.min(z0, z1), maxZ = Math.max(z0, z1);
+        if (bounded) {
+            minX = Math.max(0, minX);
+            minZ = Math.max(0, minZ);
+            maxX = Math.min(sizeX - 1, maxX);
+            maxZ = Math.min(sizeZ - 1, maxZ);
+        }
+        if (minX > maxX || minY > maxY || minZ > maxZ) return 0;
+
+        BulkEdit bulk = new BulkEdit();
+        for (int cx = Math.floorDiv(minX, chunkSize); cx <= Math.floorDiv(maxX, chunkSize); cx++) {
+            for (int cz = Math.floorDiv(minZ, chunkSize); cz <= Math.floorDiv(maxZ, chunkSize); cz++) {
+                ChunkColumn column = columns.get(ChunkColumn.key(cx, cz));
+                if (column == null) continue;
+                int bx = cx * chunkSize, bz = cz * chunkSize;
+                int lx0 = Math.max(minX - bx, 0), lx1 = Math.min(maxX - bx, chunkSize - 1);
+                int lz0 = Math.max(minZ - bz, 0), lz1 = Math.min(maxZ - bz, chunkSize - 1);
+                for (int cy = minY / chunkSize; cy <= maxY / chunkSize; cy++) {
+                    Chunk chunk = column.chunks[cy];
+                    int by = cy * chunkSize;
+                    int ly0 = Math.max(minY - by, 0), ly1 = Math.min(maxY - by, chunkSize - 1);
+                    int uniform = chunk.getUniformId();
+                    // Nothing to replace, or already all `id`: skip without unpacking
+                    if (uniform >= 0 && (uniform == id || (from >= 0 && uniform != from))) continue;
+                    ColumnChange columnChange = bulk.column(column);
+                    boolean whole = lx0 == 0 && ly0 == 0 && lz0 == 0
+                            && lx1 == chunkSize - 1 && ly1 == chunkSize - 1 && lz1 == chunkSize - 1;
+                    if (whole && shape == null && (from < 0 || uniform == from)) {
+                        // The whole chunk becomes `id`: no unpacking at all
+                        int changed = ChunkStorage.VOLUME - chunk.count(id);
+                        chunk.fill(id);
+                        for (int i = 0; i < chunkSize * chunkSize; i++) {
+                            bulk.record(columnChange, i, by + chunkSize - 1, uniform, id);
+                        }
+                        bulk.chunkChanged(chunk, FACE_X0 | FACE_X1 | FACE_Y0 | FACE_Y1 | FACE_Z0 | FACE_Z1, changed);
+                        continue;
+                    }
+                    int[] ids = bulkIds;
+                    chunk.copyIds(ids);
+                    int changed = 0, faces = 0;
+                    for (int lx = lx0; lx <= lx1; lx++) {
+                        for (int lz = lz0; lz <= lz1; lz++) {
+                            for (int ly = ly0; ly <= ly1; ly++) {
+                                int index = ChunkStorage.index(lx, ly, lz);
+                                int current = ids[index];
+                                if (current == id || (from >= 0 && current != from)) continue;
+                                if (shape != null && !shape.contains(bx + lx, by + ly, bz + lz)) continue;
+                                ids[index] = id;
+                                changed++;
+                                faces |= faces(lx, ly, lz);
+                                bulk.record(columnChange, lx * chunkSize + lz, by + ly, current, id);
+                            }
+                        }
+                    }
+                    if (changed == 0) continue;
+                    chunk.setIds(ids);
+                    bulk.chunkChanged(chunk, faces, changed);
+                }
+            }
+        }
+        return bulk.finish();
+    }
+
+    // Chunk faces a local position lies on, as FACE_* bits
+    private int faces(int lx, int ly, int lz) {
+        int last = chunkSize - 1;
+        return (lx == 0 ? FACE_X0 : 0) | (lx == last ? FACE_X1 : 0)
+                | (ly == 0 ? FACE_Y0 : 0) | (ly == last ? FACE_Y1 : 0)
+                | (lz == 0 ? FACE_Z0 : 0) | (lz == last ? FACE_Z1 : 0);
+    }
+
+    // What one bulk edit did to a column, per (x, z): enough to bring its heightmaps up to
+    // date at the end without rescanning columns whose tops cannot have dropped
+    private static final class ColumnChange {
+        final ChunkColumn column;
+        final short[] maxY;       // highest changed y, -1 = untouched
+        final short[][] raise;    // per kind, highest y now holding a block that counts
+        final byte[] lost;        // per kind bit: some block that counted was overwritten
+
+        ColumnChange(ChunkColumn column, int area) {
+            this.column = column;
+            maxY = new short[area];
+            raise = new short[column.tops.length][area];
+            lost = new byte[area];
+            Arrays.fill(maxY, (short) -1);
+            for (short[] r : raise) Arrays.fill(r, (short) -1);
+        }
+    }
+
+    // Bookkeeping of one bulk edit: chunks to mark once at the end, and the column changes
+    private final class BulkEdit {
+        private final Set<Chunk> dirty = new LinkedHashSet<>();
+        private final LongMap<ColumnChange> columnChanges = new LongMap<>();
+        private final List<ColumnChange> touched = new ArrayList<>();
+        private int changed;
+
+        ColumnChange column(ChunkColumn column) {
+            long key = ChunkColumn.key(column.cx, column.cz);
+            ColumnChange c = columnChanges.get(key);
+            if (c == null) {
+                c = new ColumnChange(column, chunkSize * chunkSize);
+                columnChanges.put(key, c);
+                touched.add(c);
+            }
+            return c;
+        }
+
+        // Block (x, z) = i, y went from oldId to newId; -1 as oldId means "unknown, assume it counted"
+        void record(ColumnChange c, int i, int y, int oldId, int newId) {
+            if (y > c.maxY[i]) c.maxY[i] = (short) y;
+            int now = heightmapKinds(newId);
+            int before = oldId < 0 ? (1 << c.raise.length) - 1 : heightmapKinds(oldId);
+            c.lost[i] |= (byte) (before & ~now);
+            for (int kind = 0; now != 0; kind++, now >>>= 1) {
+                if ((now & 1) != 0 && y > c.raise[kind][i]) c.raise[kind][i] = (short) y;
+            }
+        }
+
+        void chunkChanged(Chunk chunk, int faces, int blocks) {
+            changed += blocks;
+            chunk.markModified();
+            if (regionStore != null && chunk.markUnsaved()) unsavedChunks.add(chunk);
+            dirty.add(chunk);
+            int cx = chunk.getChunkX(), cy = chunk.getChunkY(), cz = chunk.getChunkZ();
+            if ((faces & FACE_X0) != 0) addDirty(chunkAt(cx - 1, cy, cz));
+            if ((faces & FACE_X1) != 0) addDirty(chunkAt(cx + 1, cy, cz));
+            if ((faces & FACE_Y0) != 0) addDirty(chunkAt(cx, cy - 1, cz));
+            if ((faces & FACE_Y1) != 0) addDirty(chunkAt(cx, cy + 1, cz));
+            if ((faces & FACE_Z0) != 0) addDirty(chunkAt(cx, cy, cz - 1));
+            if ((faces & FACE_Z1) != 0) addDirty(chunkAt(cx, cy, cz + 1));
+        }
+
+        private void addDirty(Chunk chunk) {
+            if (chunk != null) dirty.add(chunk);
+        }
+
+        // Marks everything once and brings the heightmaps up to date; returns the blocks changed
+        int finish() {
+            for (Chunk chunk : dirty) chunk.markDirty();
+            for (ColumnChange c : touched) {
+                short[][] tops = c.column.tops;
+                for (int i = 0; i < c.maxY.length; i++) {
+                    if (c.maxY[i] < 0) continue;
+                    for (int kind = 0; kind < tops.length; kind++) {
+                        if ((c.lost[i] & (1 << kind)) != 0 && tops[kind][i] <= c.maxY[i]) {
+                            // The top may be gone; above the highest change nothing moved
+                            tops[kind][i] = (short) scanDown(c.column, i / chunkSize, c.maxY[i], i % chunkSize, kind);
+                        } else if (c.raise[kind][i] > tops[kind][i]) {
+                            tops[kind][i] = c.raise[kind][i];
+                        }
+                    }
+                }
+            }
+            return changed;
+        }
+    }
+
     public Node getNode() {
         return node;
     }
@@ -143,13 +571,24 @@ public class VoxelWorld {
 
 
     public void generateLayers() {
-        System.out.println("🌍 1. A gerar Terreno (Estilo Minecraft)...");
-        generateTerrain(); // PASSO 1
-
-        System.out.println("🌳 2. A plantar Árvores...");
-        generateTrees();   // PASSO 2
+        if (!bounded) {
+            // Mundo infinito: só as colunas à volta do spawn; o resto vem com updateStreaming
+            System.out.println("🌍 A gerar Terreno à volta do spawn (mundo infinito)...");
+            generateAround(new Vector3f(chunkSize / 2f, 0, chunkSize / 2f));
+            return;
+        }
+        System.out.println("🌍 1. A gerar Terreno e Árvores (colunas em paralelo)...");
+        List<ChunkColumn> all = new ArrayList<>(columns.size());
+        columns.forEachValue(all::add);
+        generateColumns(all); // PASSO 1
+
+        if (regionStore != null) {
+            // Mundo fixo: o gerado serve de base e os chunks editados substituem-no
+            columns.forEachValue(this::loadEditedChunks);
+            System.out.println("💾 " + getModifiedChunkCount() + " chunks editados carregados de " + regionStore.getDirectory());
+        }
 
-        System.out.println("🌸 3. A gerar Flores...");
+        System.out.println("🌸 2. A gerar Flores...");
         generateFlowersObjects(); // Só cria Flower objects, guarda em plantedFlowers
     }
 
@@ -161,134 +600,439 @@ public class VoxelWorld {
     }
 
 
-    private void generateTerrain() {
-        Random random = new Random(WORLD_SEED);
+    /**
+     * Pool that generates terrain and trees, one fork-join task per chunk column. Defaults to
+     * the common pool; the world comes out the same whatever its parallelism.
+     */
+    public void setGenerationPool(ForkJoinPool generationPool) {
+        this.generationPool = generationPool;
+    }
 
-        for (int x = 0; x < sizeX; x++) {
-            for (int z = 0; z < sizeZ; z++) {
+    // Cada tarefa só lê o seed e só escreve nos chunks da sua coluna, por isso as colunas
+    // correm em paralelo sem locks e o resultado não depende da ordem nem do número de threads
+    private void generateColumns(List<ChunkColumn> batch) {
+        if (batch.size() == 1) {
+            generateColumn(batch.get(0));
+        } else if (!batch.isEmpty()) {
+            generationPool.invoke(new ColumnTask(batch, 0, batch.size()));
+        }
+    }
 
-                // --- 1. CÁLCULO DA ALTURA ---
+    @SuppressWarnings("serial")
+    private final class ColumnTask extends RecursiveAction {
+        private final List<ChunkColumn> batch;
+        private final int from, to;
 
-                // Reduzi a frequência de 0.08 para 0.04.
-                // Isto faz as montanhas serem mais largas e menos "agulhas",
-                // permitindo que a relva cubra tudo sem deixar pedra à mostra de lado.
+        ColumnTask(List<ChunkColumn> batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
 
-                double biomaNoise = Math.sin(x * 0.03) + Math.cos(z * 0.03);
-                double detalhe = (random.nextDouble() * 0.5);
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                generateColumn(batch.get(from));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ColumnTask(batch, from, mid), new ColumnTask(batch, mid, to));
+        }
+    }
 
-                int alturaFinal;
+    private void generateColumn(ChunkColumn column) {
+        generateTerrain(column);
+        plantTrees(column);
+        // Streamed columns take their saved edits here, before a neighbour can be meshed
+        // against them; bounded worlds load theirs in generateLayers, before any meshing
+        if (column.state == ChunkColumn.GENERATED) loadSavedChunks(column);
+        computeTops(column);
+    }
 
-                if (biomaNoise > 0.3) {
-                    // Montanha: Mais suave e larga
-                    double pico = Math.abs(Math.sin(x * 0.04) + Math.cos(z * 0.04));
-                    alturaFinal = groundHeight + 8 + (int) (pico * 20 + detalhe);
-                } else {
-                    // Planície
-                    double suave = Math.sin(x * 0.05) + Math.cos(z * 0.05);
-                    alturaFinal = groundHeight + (int) (suave * 4 + detalhe);
-                }
+    // Terreno de uma coluna de chunks; cada coluna é independente das outras.
+    // A coluna inteira de uma vez (partilha a grelha de ruído 3D), depois chunk a chunk,
+    // direto no storage: sem setBlock, sem marcar vizinhos sujos
+    private void generateTerrain(ChunkColumn column) {
+        int[] columnIds = genColumnIds.get();
+        int[] ids = GEN_IDS.get();
+        int top = terrainGenerator.fillColumn(column.cx * chunkSize, column.cz * chunkSize, columnIds);
+        for (Chunk chunk : column.chunks) {
+            int baseY = chunk.getChunkY() * chunkSize;
+            if (baseY > top) break;   // acima do terreno: fica só ar
+            terrainGenerator.copyChunk(columnIds, baseY, ids);
+            chunk.setIds(ids);
+        }
+    }
 
-                // Limites
-                if (alturaFinal < 2) alturaFinal = 2;
-                if (alturaFinal >= sizeY - 7) alturaFinal = sizeY - 7;
+    // --- STREAMING (mundo infinito) ---
 
-                // --- 2. PINTAR OS BLOCOS ---
+    /** Columns within this many chunks of the player are meshed (Chebyshev distance). */
+    public void setViewRadius(int viewRadius) {
+        this.viewRadius = Math.max(1, viewRadius);
+    }
 
-                for (int y = 0; y < sizeY; y++) {
+    public int getViewRadius() {
+        return viewRadius;
+    }
 
-                    if (y > alturaFinal) {
-                        setBlock(x, y, z, VoxelPalette.AIR_ID);
-                    } else if (y == alturaFinal) {
-                        // Topo: Relva (ou Neve se for muito, muito alto)
-                        if (alturaFinal > groundHeight + 22) {
-                            setBlock(x, y, z, VoxelPalette.GRASS_ID);
-                        } else {
-                            setBlock(x, y, z, VoxelPalette.GRASS_ID);
-                        }
-                    } else if (y >= alturaFinal - 5) {
-                        // --- ALTERAÇÃO AQUI ---
-                        // Aumentei a profundidade da terra para 5 camadas.
-                        // Assim, mesmo nas encostas, vês terra e não a pedra de dentro.
-                        setBlock(x, y, z, VoxelPalette.DIRT_ID);
-                    } else {
-                        // Núcleo da montanha: Pedra
-                        setBlock(x, y, z, VoxelPalette.STONE_ID);
-                    }
+    /** Time {@link #updateStreaming} may spend per frame on generating and unloading columns. */
+    public void setStreamBudgetMs(float streamBudgetMs) {
+        this.streamBudgetMs = streamBudgetMs;
+    }
+
+    /** Loads every column needed to show the view radius around {@code center}, in one go. */
+    public void generateAround(Vector3f center) {
+        stream(center, null, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Keeps the world loaded around {@code center} (normally the player), nearest columns
+     * first, within the stream budget. Columns are generated, terrain and trees, up to
+     * viewRadius + 1, in batches that run in parallel on the generation pool; up to
+     * viewRadius they are then meshed, once their neighbours exist, and their chunks join
+     * the dirty queue. Columns beyond viewRadius + 3 are unloaded; their edited chunks are
+     * saved first through the region store, and are only lost when saving is off. No-op
+     * for bounded worlds.
+     */
+    public void updateStreaming(Vector3f center, PhysicsSpace physicsSpace) {
+        stream(center, physicsSpace, streamBudgetMs);
+    }
+
+    private void stream(Vector3f center, PhysicsSpace physicsSpace, float budgetMs) {
+        if (bounded) return;
+        int pcx = Math.floorDiv((int) Math.floor(center.x), chunkSize);
+        int pcz = Math.floorDiv((int) Math.floor(center.z), chunkSize);
+        long deadline = budgetMs == Float.POSITIVE_INFINITY ? Long.MAX_VALUE
+                : System.nanoTime() + (long) (budgetMs * 1_000_000L);
+
+        unloadFarColumns(pcx, pcz, physicsSpace);
+        // With no budget everything missing is one parallel batch; otherwise one task per worker
+        int batchSize = deadline == Long.MAX_VALUE ? Integer.MAX_VALUE : generationPool.getParallelism();
+        int generated = generateMissing(pcx, pcz, viewRadius + 1, batchSize, deadline);
+        if (generated < 0) return;
+        boolean didWork = generated > 0;
+        // Rings around the player, nearest first; meshing needs the ring beyond to be generated
+        for (int r = 0; r <= viewRadius; r++) {
+            for (int dx = -r; dx <= r; dx++) {
+                for (int dz = -r; dz <= r; dz++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dz)) != r) continue;
+                    if (didWork && System.nanoTime() > deadline) return;
+                    if (makeReady(pcx + dx, pcz + dz)) didWork = true;
                 }
             }
         }
+    }
 
+    // Generates the missing columns up to radius, nearest first, batchSize at a time in
+    // parallel. Returns how many it generated, or -1 if the time ran out first
+    private int generateMissing(int pcx, int pcz, int radius, int batchSize, long deadline) {
+        int generated = 0;
+        for (int r = 0; r <= radius; r++) {
+            for (int dx = -r; dx <= r; dx++) {
+                for (int dz = -r; dz <= r; dz++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dz)) != r) continue;
+                    if (columns.containsKey(ChunkColumn.key(pcx + dx, pcz + dz))) continue;
+                    if (generationBatch.isEmpty() && generated > 0 && System.nanoTime() > deadline) return -1;
+                    generationBatch.add(createColumn(pcx + dx, pcz + dz));
+                    if (generationBatch.size() >= batchSize) generated += flushGenerationBatch();
+                }
+            }
+        }
+        return generated + flushGenerationBatch();
     }
 
-    // O método generateTrees mantém-se igual ao passo anterior (o que funciona bem)
-    // PASSO 2: Percorrer o mundo já criado e meter árvores
-    // PASSO 2: Percorrer o mundo já criado e meter árvores
-    private void generateTrees() {
-        Random random = new Random(WORLD_SEED); // Seed igual para reproduzir
+    private int flushGenerationBatch() {
+        generateColumns(generationBatch);
+        for (ChunkColumn column : generationBatch) {
+            columns.put(ChunkColumn.key(column.cx, column.cz), column);
+        }
+        int count = generationBatch.size();
+        generationBatch.clear();
+        return count;
+    }
 
-        for (int x = 0; x < sizeX; x++) {
-            for (int z = 0; z < sizeZ; z++) {
+    // Queues a generated column for meshing once its neighbours exist; true if work was done
+    private boolean makeReady(int cx, int cz) {
+        ChunkColumn column = columns.get(ChunkColumn.key(cx, cz));
+        if (column == null || column.state != ChunkColumn.GENERATED
+                || !neighboursReached(cx, cz, ChunkColumn.GENERATED)) return false;
+        for (Chunk chunk : column.chunks) {
+            if (chunk.isDirty()) dirtyQueue.add(chunk);
+        }
+        column.state = ChunkColumn.READY;
+        return true;
+    }
 
-                // Em vez de recalcular a matemática, procuramos onde está a relva
-                // Vamos de cima para baixo até achar o chão
-                int ySuperficie = getHighestBlockY(x, z);
+    private boolean neighboursReached(int cx, int cz, int state) {
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                ChunkColumn n = columns.get(ChunkColumn.key(cx + dx, cz + dz));
+                if (n == null || n.state < state) return false;
+            }
+        }
+        return true;
+    }
 
-                // Se não encontrarmos chão válido ou não for relva, passa à frente
-                if (ySuperficie == -1) continue;
-                if (getBlock(x, ySuperficie, z) != VoxelPalette.GRASS_ID) continue;
+    private void unloadFarColumns(int pcx, int pcz, PhysicsSpace physicsSpace) {
+        int keep = viewRadius + 3;
+        unloadScratch.clear();
+        columns.forEachValue(column -> {
+            if (Math.max(Math.abs(column.cx - pcx), Math.abs(column.cz - pcz)) > keep) unloadScratch.add(column);
+        });
+        for (ChunkColumn column : unloadScratch) {
+            saveColumn(column);
+            columns.remove(ChunkColumn.key(column.cx, column.cz));
+            for (Chunk chunk : column.chunks) {
+                chunk.releaseMesh(physicsSpace, physics());
+                physicsChunks.remove(chunk);
+                shapeCache.remove(chunk);
+                if (chunk.isDirty()) dirtyQueue.remove(chunk);
+            }
+        }
+        unloadScratch.clear();
+    }
+
+    // --- PERSISTÊNCIA (region files) ---
 
-                // --- LÓGICA DE PLANTAÇÃO ---
+    /**
+     * Loads saved chunks from, and saves them to, region files in {@code directory}.
+     * Call before {@link #generateLayers()}; null turns saving off.
+     */
+    public void setSaveDirectory(Path directory) {
+        closeSaves();
+        if (directory == null) return;
+        try {
+            regionStore = new RegionStore(directory, WORLD_SEED, GENERATOR_VERSION);
+        } catch (IOException e) {
+            System.err.println("⚠️ Não foi possível abrir " + directory + ", o mundo não será guardado: " + e.getMessage());
+        }
+    }
 
-                // Margem de 4 blocos para as folhas não saírem do mapa
-                boolean margemSegura = (x > 3) && (x < sizeX - 4) && (z > 3) && (z < sizeZ - 4);
+    /** Where the world is saved, or null if saving is off. */
+    public Path getSaveDirectory() {
+        return regionStore == null ? null : regionStore.getDirectory();
+    }
 
-                if (margemSegura) {
-                    // Verifica se já existe madeira por perto (raio 5)
-                    if (!temArvorePerto(x, z, ySuperficie, 5)) {
-                        // 5% de chance
-                        if (random.nextFloat() < 0.05f) {
-                            placeTree(x, z, ySuperficie);
-                        }
-                    }
-                }
+    /**
+     * Hands every chunk edited since the last save to the writer thread as a copy-on-write
+     * snapshot and returns how many there were. Does no I/O, so it can run on the render
+     * thread at a frame boundary; see {@link #flushSavesAsync()} to know when it is on disk.
+     */
+    public int saveChanges() {
+        int count = 0;
+        for (Chunk chunk : unsavedChunks) {
+            if (saveChunk(chunk)) count++;
+        }
+        unsavedChunks.clear();
+        return count;
+    }
+
+    /**
+     * Completes on the writer thread once everything saved so far is forced to disk, or
+     * exceptionally if a chunk could not be written or a region file not flushed.
+     */
+    public CompletableFuture<Void> flushSavesAsync() {
+        return regionStore == null ? CompletableFuture.completedFuture(null) : regionStore.flushAsync();
+    }
+
+    /** Chunks handed to the writer thread and not written yet. */
+    public int getSaveQueueLength() {
+        return regionStore == null ? 0 : regionStore.getQueuedCount();
+    }
+
+    /** Saves absorbed by a still-queued copy of the same chunk (backpressure at work). */
+    public int getCoalescedSaveCount() {
+        return regionStore == null ? 0 : regionStore.getCoalescedCount();
+    }
+
+    /** Queues every edited chunk for writing and waits until it is on disk; failures are logged. */
+    public void saveAll() {
+        if (regionStore == null) return;
+        saveChanges();
+        try {
+            regionStore.flush();
+        } catch (IllegalStateException e) {
+            System.err.println("⚠️ Erro a guardar o mundo: " + e.getCause());
+        }
+    }
+
+    /** Saves everything and releases the region files; the world stops saving afterwards. */
+    public void closeSaves() {
+        if (regionStore == null) return;
+        saveChanges();
+        try {
+            regionStore.close();
+        } catch (IOException e) {
+            System.err.println("⚠️ Erro a fechar os ficheiros do mundo: " + e.getMessage());
+        }
+        regionStore = null;
+    }
+
+    private void saveColumn(ChunkColumn column) {
+        for (Chunk chunk : column.chunks) saveChunk(chunk);
+    }
+
+    // Only edited chunks reach the queue: the generator recreates the rest on load
+    private boolean saveChunk(Chunk chunk) {
+        if (regionStore == null || !chunk.isUnsaved()) return false;
+        chunk.markSaved();
+        ChunkStorage storage = chunk.getStorage();
+        regionStore.save(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ(),
+                storage == null ? null : storage.snapshot());
+        return true;
+    }
+
+    private void loadEditedChunks(ChunkColumn column) {
+        if (loadSavedChunks(column)) computeTops(column);
+    }
+
+    // Replaces generated chunks with their saved copies; true if there were any. Safe on the
+    // generation pool for a column not in the map yet: the store is thread-safe, and the
+    // chunks' dirty listener ignores columns that are not READY
+    private boolean loadSavedChunks(ChunkColumn column) {
+        RegionStore store = regionStore;
+        if (store == null) return false;
+        boolean loaded = false;
+        for (Chunk chunk : column.chunks) {
+            ChunkStorage saved = store.load(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ());
+            if (saved != null) {
+                chunk.setStorage(saved);
+                loaded = true;
             }
         }
+        return loaded;
+    }
 
+    // --- HEIGHTMAPS ---
+
+    // Does a block of this id count for heightmap `kind`?
+    private boolean counts(int kind, int id) {
+        switch (kind) {
+            case ChunkColumn.TOP_SOLID: return palette.isSolid(id);
+            case ChunkColumn.TOP_OPAQUE: return palette.isOpaque(id);
+            default: return palette.isGround(id);
+        }
     }
 
+    // Heightmaps a block of this id counts for, one bit per kind
+    private int heightmapKinds(int id) {
+        return (palette.isSolid(id) ? 1 << ChunkColumn.TOP_SOLID : 0)
+                | (palette.isOpaque(id) ? 1 << ChunkColumn.TOP_OPAQUE : 0)
+                | (palette.isGround(id) ? 1 << ChunkColumn.TOP_GROUND : 0);
+    }
 
-    // --- MÉTODOS AUXILIARES ---
+    // All three heightmaps of a column from scratch, after generation or loading saved chunks.
+    // One pass down each (x, z) fills the three; it stops once the lowest of them is found
+    private void computeTops(ChunkColumn column) {
+        short[] solid = column.tops[ChunkColumn.TOP_SOLID];
+        short[] opaque = column.tops[ChunkColumn.TOP_OPAQUE];
+        short[] ground = column.tops[ChunkColumn.TOP_GROUND];
+        Arrays.fill(solid, (short) -1);
+        Arrays.fill(opaque, (short) -1);
+        Arrays.fill(ground, (short) -1);
+        for (int lx = 0; lx < chunkSize; lx++) {
+            for (int lz = 0; lz < chunkSize; lz++) {
+                int i = lx * chunkSize + lz;
+                int missing = 3;
+                for (int y = sizeY - 1; y >= 0 && missing > 0; ) {
+                    Chunk chunk = column.chunks[y / chunkSize];
+                    int uniform = chunk.getUniformId();
+                    int id = uniform >= 0 ? uniform : chunk.getId(lx, y % chunkSize, lz);
+                    if (solid[i] < 0 && palette.isSolid(id)) { solid[i] = (short) y; missing--; }
+                    if (opaque[i] < 0 && palette.isOpaque(id)) { opaque[i] = (short) y; missing--; }
+                    if (ground[i] < 0 && palette.isGround(id)) { ground[i] = (short) y; missing--; }
+                    // A uniform chunk gives the same answer all the way down
+                    y = uniform >= 0 ? y / chunkSize * chunkSize - 1 : y - 1;
+                }
+            }
+        }
+    }
 
-    private int getHighestBlockY(int x, int z) {
-        for (int y = sizeY - 1; y >= 0; y--) {
-            byte b = getBlock(x, y, z);
-            // Ignora ar, madeira e folhas (caso estejamos a verificar de novo)
-            if (b != VoxelPalette.AIR_ID && b != VoxelPalette.LEAVES_ID && b != VoxelPalette.WOOD_ID) {
-                return y;
+    // Highest y <= fromY in (lx, lz) whose block counts for `kind`, or -1. Uniform chunks
+    // (all air, all stone) are decided with one lookup instead of 16
+    private int scanDown(ChunkColumn column, int lx, int fromY, int lz, int kind) {
+        for (int y = Math.min(fromY, sizeY - 1); y >= 0; ) {
+            Chunk chunk = column.chunks[y / chunkSize];
+            int uniform = chunk.getUniformId();
+            if (uniform >= 0) {
+                if (counts(kind, uniform)) return y;
+                y = y / chunkSize * chunkSize - 1;
+                continue;
             }
+            if (counts(kind, chunk.getId(lx, y % chunkSize, lz))) return y;
+            y--;
         }
         return -1;
     }
 
-    private boolean temArvorePerto(int x, int z, int y, int raio) {
-        for (int i = x - raio; i <= x + raio; i++) {
-            for (int j = z - raio; j <= z + raio; j++) {
-                if (isInside(i, y + 1, j)) { // Verifica madeira logo acima do chão
-                    if (getBlock(i, y + 1, j) == VoxelPalette.WOOD_ID) {
-                        return true;
-                    }
-                }
+    // One block changed: raise a top it now beats, or look further down if it was the top
+    private void updateTops(ChunkColumn column, int lx, int y, int lz, int id) {
+        if (y >= sizeY) return;
+        int i = lx * chunkSize + lz;
+        for (int kind = 0; kind < column.tops.length; kind++) {
+            short[] tops = column.tops[kind];
+            if (counts(kind, id)) {
+                if (y > tops[i]) tops[i] = (short) y;
+            } else if (y == tops[i]) {
+                tops[i] = (short) scanDown(column, lx, y - 1, lz, kind);
             }
         }
-        return false;
     }
 
-    private void placeTree(int x, int z, int yBase) {
+    /** Loaded chunks that differ from the generated world (and will be saved). */
+    public int getModifiedChunkCount() {
+        int[] count = {0};
+        forEachChunk(chunk -> { if (chunk.isModified()) count[0]++; });
+        return count[0];
+    }
+
+    /** Chunk columns currently in memory. */
+    public int getLoadedColumnCount() {
+        return columns.size();
+    }
+
+    // --- ÁRVORES ---
+
+    // Árvores que tocam nesta coluna: as que nascem nela e as das vizinhas a menos de
+    // TREE_REACH blocos da borda. Só escreve nos chunks desta coluna, por isso as tarefas de
+    // geração não se atropelam e o resultado não depende da ordem
+    private void plantTrees(ChunkColumn column) {
+        int baseX = column.cx * chunkSize;
+        int baseZ = column.cz * chunkSize;
+        for (int x = baseX - TREE_REACH; x < baseX + chunkSize + TREE_REACH; x++) {
+            for (int z = baseZ - TREE_REACH; z < baseZ + chunkSize + TREE_REACH; z++) {
+                if (!isTreeSpot(x, z)) continue;
+                int ySuperficie = terrainGenerator.surfaceY(x, z);
+                if (ySuperficie >= 0) placeTree(column, x, z, ySuperficie);
+            }
+        }
+    }
+
+    // 5% das posições são candidatas; num raio de TREE_SPACING fica só a de hash mais baixo,
+    // para as árvores não se encostarem. Depende só do seed, não das árvores já plantadas
+    private boolean isTreeSpot(int x, int z) {
+        double h = treeChance(x, z);
+        if (h >= TREE_CHANCE) return false;
+        for (int i = x - TREE_SPACING; i <= x + TREE_SPACING; i++) {
+            for (int j = z - TREE_SPACING; j <= z + TREE_SPACING; j++) {
+                if ((i != x || j != z) && treeChance(i, j) < h) return false;
+            }
+        }
+        return true;
+    }
+
+    private double treeChance(int x, int z) {
+        // Mundo fixo: margem de 4 blocos para as folhas não saírem do mapa
+        if (bounded && (x <= 3 || x >= sizeX - 4 || z <= 3 || z >= sizeZ - 4)) return 1.0;
+        return CoordHash.unit(WORLD_SEED, x, z, SALT_TREES);
+    }
+
+    private void placeTree(ChunkColumn column, int x, int z, int yBase) {
         int treeHeight = 5;
 
         // TRONCO
         for (int i = 1; i <= treeHeight; i++) {
-            setBlock(x, yBase + i, z, VoxelPalette.WOOD_ID);
+            treeBlock(column, x, yBase + i, z, VoxelPalette.WOOD_ID, false);
         }
 
         // FOLHAS (Quadradas e completas)
@@ -300,36 +1044,51 @@ public class VoxelWorld {
 
             for (int lx = x - radius; lx <= x + radius; lx++) {
                 for (int lz = z - radius; lz <= z + radius; lz++) {
-                    if (!isInside(lx, ly, lz)) continue;
-
                     // Não apaga o tronco
                     if (lx == x && lz == z && ly <= yBase + treeHeight) continue;
 
                     // Só mete folha se for AR (não estraga montanha nem outras árvores)
-                    if (getBlock(lx, ly, lz) == VoxelPalette.AIR_ID) {
-                        setBlock(lx, ly, lz, VoxelPalette.LEAVES_ID);
-                    }
+                    treeBlock(column, lx, ly, lz, VoxelPalette.LEAVES_ID, true);
                 }
             }
         }
     }
 
-    private boolean isInside(int x, int y, int z) {
-        return x >= 0 && x < sizeX && y >= 0 && y < sizeY && z >= 0 && z < sizeZ;
+    // Bloco de uma árvore, se cair dentro da coluna; direto no chunk, que ainda é só do gerador
+    private void treeBlock(ChunkColumn column, int x, int y, int z, int id, boolean onlyAir) {
+        if (y < 0 || y >= sizeY) return;
+        if (Math.floorDiv(x, chunkSize) != column.cx || Math.floorDiv(z, chunkSize) != column.cz) return;
+        Chunk chunk = column.chunks[y / chunkSize];
+        if (onlyAir && chunk.getId(lx(x), ly(y), lz(z)) != VoxelPalette.AIR_ID) return;
+        chunk.setId(lx(x), ly(y), lz(z), id);
     }
 
 
+    /** Y of the highest solid block at (x, z), or -1 if there is none or the column is not loaded. O(1). */
     public int getTopSolidY(int x, int z) {
-        if (x < 0 || z < 0 || x >= sizeX || z >= sizeZ) return -1;
-        for (int y = sizeY - 1; y >= 0; y--) {
-            if (palette.get(getBlock(x, y, z)).isSolid()) return y;
-        }
-        return -1;
+        return topY(x, z, ChunkColumn.TOP_SOLID);
+    }
+
+    /** Like {@link #getTopSolidY}, but for blocks that stop light and sight (leaves do not). */
+    public int getTopOpaqueY(int x, int z) {
+        return topY(x, z, ChunkColumn.TOP_OPAQUE);
+    }
+
+    /** Like {@link #getTopSolidY}, ignoring trunks and leaves: where things stand on the ground. */
+    public int getTopGroundY(int x, int z) {
+        return topY(x, z, ChunkColumn.TOP_GROUND);
+    }
+
+    private int topY(int x, int z, int kind) {
+        if (!inBounds(x, 0, z)) return -1;
+        ChunkColumn column = columns.get(ChunkColumn.key(Math.floorDiv(x, chunkSize), Math.floorDiv(z, chunkSize)));
+        return column == null ? -1 : column.tops[kind][lx(x) * chunkSize + lz(z)];
     }
 
     public Vector3f getRecommendedSpawn() {
-        int cx = sizeX / 2;
-        int cz = sizeZ / 2;
+        // Unbounded worlds spawn in the middle of chunk column (0, 0)
+        int cx = bounded ? sizeX / 2 : chunkSize / 2;
+        int cz = bounded ? sizeZ / 2 : chunkSize / 2;
         int ty = getTopSolidY(cx, cz);
         if (ty < 0) ty = groundHeight;
         return new Vector3f(cx + 0.5f, ty + 3.0f, cz + 0.5f);
@@ -357,33 +1116,307 @@ public class VoxelWorld {
         m.getAdditionalRenderState().setWireframe(wireframe);
     }
 
+    /**
+     * Meshes every chunk and attaches it. With a mesh service the chunks are built in parallel
+     * on its workers; this still waits for all of them so the world is complete on return.
+     */
     public void buildMeshes() {
         node.detachAllChildren();
-        for (int cx = 0; cx < chunkCountX; cx++) {
-            for (int cy = 0; cy < chunkCountY; cy++) {
-                for (int cz = 0; cz < chunkCountZ; cz++) {
-                    Chunk chunk = chunks[cx][cy][cz];
-                    chunk.buildMesh(assetManager, palette);
-                    node.attachChild(chunk.getNode());
+        List<Chunk> pending = new ArrayList<>();
+        List<Future<Mesh[]>> results = new ArrayList<>();
+        boolean arrayMode = textureArrayMode;
+        columns.forEachValue(column -> {
+            if (column.state != ChunkColumn.READY) return;
+            for (Chunk chunk : column.chunks) {
+                if (canSkipMesh(chunk)) {
+                    chunk.releaseMesh(null);
+                } else if (meshService == null) {
+                    applyMeshes(chunk, callMeshJob(meshJob(snapshot(chunk))), arrayMode);
+                } else {
+                    pending.add(chunk);
+                    results.add(meshService.submit(meshJob(snapshot(chunk))));
                 }
             }
+        });
+        for (int i = 0; i < pending.size(); i++) {
+            Chunk chunk = pending.get(i);
+            try {
+                applyMeshes(chunk, results.get(i).get(), arrayMode);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while meshing chunks", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Chunk meshing failed", e.getCause());
+            }
         }
     }
 
+    /**
+     * True if a chunk needs no geometry at all: it is all air, or a single solid type whose six
+     * neighbours are single solid types too, so none of its faces can be seen. Such chunks
+     * skip snapshotting, meshing and physics until an edit changes their state.
+     */
+    private boolean canSkipMesh(Chunk chunk) {
+        if (chunk.isEmpty()) {
+            skippedEmptyMeshes++;
+            return true;
+        }
+        if (!isUniformSolid(chunk)) return false;
+        int cx = chunk.getChunkX(), cy = chunk.getChunkY(), cz = chunk.getChunkZ();
+        // Outside the world counts as air, so border chunks are never enclosed
+        if (isUniformSolid(chunkAt(cx - 1, cy, cz)) && isUniformSolid(chunkAt(cx + 1, cy, cz))
+                && isUniformSolid(chunkAt(cx, cy - 1, cz)) && isUniformSolid(chunkAt(cx, cy + 1, cz))
+                && isUniformSolid(chunkAt(cx, cy, cz - 1)) && isUniformSolid(chunkAt(cx, cy, cz + 1))) {
+            skippedEnclosedMeshes++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isUniformSolid(Chunk c) {
+        if (c == null) return false;
+        int id = c.getUniformId();
+        return id >= 0 && palette.isSolid(id);
+    }
+
+    // Mesh build for the current mode; safe to run on a worker since it only reads the snapshot
+    private Callable<Mesh[]> meshJob(ChunkSnapshot snap) {
+        boolean greedy = greedyMeshing;
+        if (textureArrayMode) return () -> new Mesh[] { Chunk.buildArrayMesh(snap, palette, greedy) };
+        return () -> Chunk.buildMeshes(snap, palette, greedy);
+    }
 
+    private static Mesh[] callMeshJob(Callable<Mesh[]> job) {
+        try {
+            return job.call();
+        } catch (Exception e) {
+            throw new IllegalStateException("Chunk meshing failed", e);
+        }
+    }
+
+    private void applyMeshes(Chunk chunk, Mesh[] meshes, boolean arrayMode) {
+        if (arrayMode) {
+            chunk.applyArrayMesh(meshes[0], palette.getMaterials().getArrayMaterial(assetManager));
+        } else {
+            chunk.applyMeshes(meshes, assetManager, palette);
+        }
+        if (chunk.getNode().getParent() == null) node.attachChild(chunk.getNode());
+    }
+
+    /**
+     * Moves mesh building of dirty chunks to the given worker pool. Pass null to go back to
+     * building on the render thread.
+     */
+    public void setMeshService(ChunkMeshService meshService) {
+        this.meshService = meshService;
+    }
+
+    /** Async mesh builds not applied yet; 0 without a mesh service. */
+    public int getPendingMeshBuilds() {
+        return meshService == null ? 0 : meshService.getPendingCount();
+    }
+
+    /** Async mesh builds that threw (their chunks were queued again); 0 without a mesh service. */
+    public int getFailedMeshBuilds() {
+        return meshService == null ? 0 : meshService.getFailedCount();
+    }
+
+    /** Async mesh results thrown away because the chunk was edited while they were built. */
+    public int getStaleMeshResults() {
+        return staleMeshResults;
+    }
+
+
+    /**
+     * Gives chunk bodies to the chunks around {@code body}, a dynamic body or character the
+     * caller adds to the space, from the next {@link #updatePhysicsBodies} on. Only tracked
+     * bodies are looked at, so the per-frame cost does not grow with the chunk bodies in the
+     * space. With a {@link #setPhysicsHandoff handoff} the body is tracked there too.
+     */
+    public void trackBody(PhysicsCollisionObject body) {
+        if (trackedBodies.add(body) && physicsHandoff != null) physicsHandoff.track(body);
+    }
+
+    /** Stops keeping chunk bodies around {@code body}; call when it leaves the space. */
+    public void untrackBody(PhysicsCollisionObject body) {
+        if (trackedBodies.remove(body) && physicsHandoff != null) physicsHandoff.untrack(body);
+    }
+
+    /**
+     * Gives static bodies to the chunks near the {@link #trackBody tracked} bodies; the rest
+     * follow through {@link #updatePhysicsBodies} as things move.
+     */
     public void buildPhysics(PhysicsSpace space) {
-        // Build per-chunk static rigid bodies instead of a single world body
         if (space == null) return;
-        for (int cx = 0; cx < chunkCountX; cx++) {
-            for (int cy = 0; cy < chunkCountY; cy++) {
-                for (int cz = 0; cz < chunkCountZ; cz++) {
-                    Chunk chunk = chunks[cx][cy][cz];
-                    chunk.updatePhysics(space);
+        collectBodyCells(space);
+        activateNearBodies(space);
+    }
+
+    /**
+     * Keeps chunk bodies only where something can touch them: chunks within the
+     * {@link #setPhysicsRadius physics radius} of a {@link #trackBody tracked} body get one, and
+     * lose it once no dynamic body is within the radius plus one chunk (the extra chunk stops
+     * a body walking along a chunk border from adding and removing them every frame).
+     * Shapes come from an LRU cache, so a chunk that was not edited meanwhile gets its old
+     * shape back.
+     * <p>
+     * Chunks edited since their body got its shape are brought up to date here too, once
+     * however many blocks changed this frame: the body keeps its place in the space and only
+     * swaps shapes, and dynamic bodies next to it are woken so a resting one notices the
+     * ground it stood on is gone. Call once per frame, after the edits and before the
+     * physics step.
+     */
+    public void updatePhysicsBodies(PhysicsSpace space) {
+        if (space == null) return;
+        for (Iterator<Chunk> it = physicsChunks.iterator(); it.hasNext(); ) {
+            Chunk chunk = it.next();
+            if (!chunk.isPhysicsStale()) continue;
+            chunk.updatePhysics(space, shapeCache.get(chunk, palette), physics());
+            if (!chunk.hasCollision()) it.remove();
+            wakeBodiesNear(chunk, space);
+        }
+        if (!collectBodyCells(space)) return;
+        for (Iterator<Chunk> it = physicsChunks.iterator(); it.hasNext(); ) {
+            Chunk chunk = it.next();
+            if (chunk.hasCollision() && nearBody(chunk, physicsRadius + 1)) continue;
+            chunk.removePhysics(space, physics());
+            it.remove();
+        }
+        activateNearBodies(space);
+    }
+
+    /**
+     * Chunks within this many chunks of a dynamic body, on every axis, get a collision body.
+     * Bodies are re-checked once per frame, so 1 is enough unless something crosses more
+     * than a chunk per frame.
+     */
+    public void setPhysicsRadius(int physicsRadius) {
+        this.physicsRadius = Math.max(0, physicsRadius);
+    }
+
+    public int getPhysicsRadius() {
+        return physicsRadius;
+    }
+
+    /** Chunks that currently have a collision body. */
+    public int getPhysicsChunkCount() {
+        return physicsChunks.size();
+    }
+
+    /**
+     * For a space that Bullet steps on another thread: the world then leaves the space to
+     * {@code handoff} (added to it as a tick listener), queuing its calls for the next tick and
+     * placing chunk bodies around the positions of the last tick. Null goes back to direct
+     * calls, for a space stepped on the render thread.
+     */
+    public void setPhysicsHandoff(PhysicsHandoff handoff) {
+        this.physicsHandoff = handoff;
+        if (handoff != null) trackedBodies.forEach(handoff::track);
+    }
+
+    // Runs calls into the space now, or on the physics thread at its next tick
+    private Executor physics() {
+        return physicsHandoff != null ? physicsHandoff : Runnable::run;
+    }
+
+    // Chunk cells of the tracked bodies; true if they changed
+    private boolean collectBodyCells(PhysicsSpace space) {
+        int count = 0;
+        boolean changed = false;
+        if (physicsHandoff != null) {
+            PhysicsHandoff.Frame frame = physicsHandoff.frame();
+            for (int o = 0; o < frame.cur.length; o += 3) {
+                changed |= setBodyCell(count++, bodyLocation.set(frame.cur[o], frame.cur[o + 1], frame.cur[o + 2]));
+            }
+            changed |= count != bodyCellCount;
+            bodyCellCount = count;
+            return changed;
+        }
+        for (PhysicsCollisionObject body : trackedBodies) {
+            changed |= setBodyCell(count++, body.getPhysicsLocation(bodyLocation));
+        }
+        // Slots past the old count held nothing valid; the count change covers them
+        changed |= count != bodyCellCount;
+        bodyCellCount = count;
+        return changed;
+    }
+
+    // Stores the chunk cell of body i; true if it differs from the stored one
+    private boolean setBodyCell(int i, Vector3f location) {
+        if (bodyCells.length < (i + 1) * 3) bodyCells = Arrays.copyOf(bodyCells, Math.max((i + 1) * 3, bodyCells.length * 2));
+        int cx = Math.floorDiv((int) Math.floor(location.x), chunkSize);
+        int cy = Math.floorDiv((int) Math.floor(location.y), chunkSize);
+        int cz = Math.floorDiv((int) Math.floor(location.z), chunkSize);
+        int o = i * 3;
+        boolean changed = bodyCells[o] != cx || bodyCells[o + 1] != cy || bodyCells[o + 2] != cz;
+        bodyCells[o] = cx;
+        bodyCells[o + 1] = cy;
+        bodyCells[o + 2] = cz;
+        return changed;
+    }
+
+    private boolean nearBody(Chunk chunk, int radius) {
+        for (int o = 0; o < bodyCellCount * 3; o += 3) {
+            if (Math.abs(chunk.getChunkX() - bodyCells[o]) <= radius
+                    && Math.abs(chunk.getChunkY() - bodyCells[o + 1]) <= radius
+                    && Math.abs(chunk.getChunkZ() - bodyCells[o + 2]) <= radius) return true;
+        }
+        return false;
+    }
+
+    private void activateNearBodies(PhysicsSpace space) {
+        int r = physicsRadius;
+        for (int o = 0; o < bodyCellCount * 3; o += 3) {
+            for (int cx = bodyCells[o] - r; cx <= bodyCells[o] + r; cx++) {
+                for (int cy = Math.max(0, bodyCells[o + 1] - r); cy <= Math.min(chunkCountY - 1, bodyCells[o + 1] + r); cy++) {
+                    for (int cz = bodyCells[o + 2] - r; cz <= bodyCells[o + 2] + r; cz++) {
+                        Chunk chunk = chunkAt(cx, cy, cz);
+                        if (chunk != null && !chunk.hasCollision()) attachPhysics(chunk, space);
+                    }
                 }
             }
         }
     }
 
+    // After a remesh: a chunk with a body, or one near a dynamic body, gets its new shape
+    private void refreshPhysics(Chunk chunk, PhysicsSpace space) {
+        if (space == null || (!chunk.hasCollision() && !nearBody(chunk, physicsRadius))) return;
+        if (attachPhysics(chunk, space)) wakeBodiesNear(chunk, space);
+    }
+
+    // Bullet leaves resting bodies asleep when a static shape under them changes
+    private void wakeBodiesNear(Chunk chunk, PhysicsSpace space) {
+        if (space == null) return;
+        float x0 = chunk.getChunkX() * chunkSize - 2, y0 = chunk.getChunkY() * chunkSize - 2, z0 = chunk.getChunkZ() * chunkSize - 2;
+        float x1 = x0 + chunkSize + 4, y1 = y0 + chunkSize + 4, z1 = z0 + chunkSize + 4;
+        if (physicsHandoff == null) {
+            wakeBodiesIn(trackedBodies, x0, y0, z0, x1, y1, z1, bodyLocation);
+        } else {
+            // runs in the same tick as the queued shape change, before anything moves
+            PhysicsHandoff handoff = physicsHandoff;
+            handoff.execute(() -> wakeBodiesIn(handoff.trackedBodies(), x0, y0, z0, x1, y1, z1, new Vector3f()));
+        }
+    }
+
+    // On the thread that steps the space
+    private static void wakeBodiesIn(Iterable<PhysicsCollisionObject> bodies, float x0, float y0, float z0,
+                                     float x1, float y1, float z1, Vector3f location) {
+        for (PhysicsCollisionObject object : bodies) {
+            if (!(object instanceof PhysicsRigidBody body) || !body.isDynamic() || body.isActive()) continue;
+            Vector3f p = body.getPhysicsLocation(location);
+            if (p.x >= x0 && p.x <= x1 && p.y >= y0 && p.y <= y1 && p.z >= z0 && p.z <= z1) body.activate();
+        }
+    }
+
+    // Gives the chunk the cached shape for its voxels; false if its body already had it
+    private boolean attachPhysics(Chunk chunk, PhysicsSpace space) {
+        CollisionShape shape = chunk.getGeometryCount() > 0 ? shapeCache.get(chunk, palette) : null;
+        boolean changed = chunk.updatePhysics(space, shape, physics());
+        if (chunk.hasCollision()) physicsChunks.add(chunk);
+        else physicsChunks.remove(chunk);
+        return changed;
+    }
+
     public Optional<Hit> pickFirstSolid(Camera cam, float maxDistance) {
         Vector3f origin = cam.getLocation();
         Vector3f dir = cam.getDirection().normalize();
@@ -458,50 +1491,115 @@ public class VoxelWorld {
 
     private boolean isSolid(int x, int y, int z) {
         if (!inBounds(x, y, z)) return false;
-        return palette.get(getBlock(x, y, z)).isSolid();
+        return palette.isSolid(getBlockId(x, y, z));
+    }
+
+    /** False where an unbounded world has not generated the column holding (x, z) yet. */
+    boolean hasColumnAt(int x, int z) {
+        return bounded || columns.containsKey(ChunkColumn.key(Math.floorDiv(x, chunkSize), Math.floorDiv(z, chunkSize)));
     }
 
     private boolean inBounds(int x, int y, int z) {
-        return x >= 0 && y >= 0 && z >= 0 && x < sizeX && y < sizeY && z < sizeZ;
+        if (y < 0 || y >= sizeY) return false;
+        if (bounded) return x >= 0 && z >= 0 && x < sizeX && z < sizeZ;
+        return columns.containsKey(ChunkColumn.key(Math.floorDiv(x, chunkSize), Math.floorDiv(z, chunkSize)));
     }
 
     public void setLit(boolean lit) {
         if (this.lit == lit) return;
         this.lit = lit;
-        for (var e : geoms.entrySet()) {
-            Geometry g = e.getValue();
-            var oldMat = g.getMaterial();
-            com.jme3.texture.Texture tex = oldMat.getTextureParam("DiffuseMap") != null
-                    ? oldMat.getTextureParam("DiffuseMap").getTextureValue()
-                    : (oldMat.getTextureParam("ColorMap") != null ? oldMat.getTextureParam("ColorMap").getTextureValue() : null);
-            Material newMat;
-            if (this.lit) {
-                newMat = new Material(assetManager, "Common/MatDefs/Light/Lighting.j3md");
-                if (tex != null) newMat.setTexture("DiffuseMap", tex);
-                newMat.setBoolean("UseMaterialColors", true);
-                newMat.setColor("Diffuse", ColorRGBA.White);
-                newMat.setColor("Specular", ColorRGBA.White.mult(0.08f));
-                newMat.setFloat("Shininess", 16f);
-            } else {
-                newMat = new Material(assetManager, "Common/MatDefs/Misc/Unshaded.j3md");
-                if (tex != null) newMat.setTexture("ColorMap", tex);
-            }
-            applyRenderFlags(newMat);
-            g.setMaterial(newMat);
-        }
+        // Shared per-type materials: only the geometries' references change, no new Materials
+        palette.getMaterials().setLit(lit);
+        forEachChunk(chunk -> chunk.refreshMaterials(assetManager, palette));
     }
 
     public void setWireframe(boolean wireframe) {
         if (this.wireframe == wireframe) return;
         this.wireframe = wireframe;
-
-        for (Geometry g : geoms.values()) applyRenderFlags(g.getMaterial());
+        palette.getMaterials().setWireframe(wireframe);
     }
 
     public void setCulling(boolean culling) {
         if (this.culling == culling) return;
         this.culling = culling;
-        for (Geometry g : geoms.values()) applyRenderFlags(g.getMaterial());
+        palette.getMaterials().setCulling(culling);
+    }
+
+    /**
+     * Switches between greedy meshing and one quad per voxel face. All chunks are marked
+     * dirty; they are rebuilt over the next frames by {@link #rebuildDirtyChunks}.
+     */
+    public void setGreedyMeshing(boolean greedyMeshing) {
+        if (this.greedyMeshing == greedyMeshing) return;
+        this.greedyMeshing = greedyMeshing;
+        forEachChunk(Chunk::markDirty);
+    }
+
+    public boolean isGreedyMeshing() {
+        return greedyMeshing;
+    }
+
+    /**
+     * Switches between one geometry per block type (per-type Lighting materials) and a single
+     * geometry per chunk drawn with the shared texture-array material. Chunks are rebuilt lazily.
+     */
+    public void setTextureArrayMode(boolean textureArrayMode) {
+        if (this.textureArrayMode == textureArrayMode) return;
+        this.textureArrayMode = textureArrayMode;
+        forEachChunk(Chunk::markDirty);
+    }
+
+    public boolean isTextureArrayMode() {
+        return textureArrayMode;
+    }
+
+    /** Sun and ambient light used by the texture-array material (Lighting.j3md uses scene lights). */
+    public void setLighting(Vector3f sunDirection, ColorRGBA sunColor, ColorRGBA ambientColor) {
+        palette.getMaterials().setLighting(sunDirection, sunColor, ambientColor);
+    }
+
+    /** Approximate heap used by chunk voxel storage, for memory statistics. */
+    public long getVoxelStorageBytes() {
+        long[] bytes = {0};
+        forEachChunk(chunk -> { if (!chunk.isEmpty()) bytes[0] += chunk.getStorage().estimateBytes(); });
+        return bytes[0];
+    }
+
+    /** Chunk geometries currently attached, i.e. draw calls spent on terrain before culling. */
+    public int getChunkGeometryCount() {
+        int[] count = {0};
+        forEachChunk(chunk -> count[0] += chunk.getGeometryCount());
+        return count[0];
+    }
+
+    /** Chunks that are all air and hold no voxel storage. */
+    public int getEmptyChunkCount() {
+        int[] count = {0};
+        forEachChunk(chunk -> { if (chunk.isEmpty()) count[0]++; });
+        return count[0];
+    }
+
+    /** Chunks filled with a single block type (including all-air ones). */
+    public int getUniformChunkCount() {
+        int[] count = {0};
+        forEachChunk(chunk -> { if (chunk.getUniformId() >= 0) count[0]++; });
+        return count[0];
+    }
+
+    /** Mesh builds skipped so far because the chunk was all air. */
+    public int getSkippedEmptyMeshes() {
+        return skippedEmptyMeshes;
+    }
+
+    /** Mesh builds skipped so far because the chunk was uniform solid and fully enclosed. */
+    public int getSkippedEnclosedMeshes() {
+        return skippedEnclosedMeshes;
+    }
+
+    private void forEachChunk(Consumer<Chunk> action) {
+        columns.forEachValue(column -> {
+            for (Chunk chunk : column.chunks) action.accept(chunk);
+        });
     }
 
     public boolean isLit() {
@@ -531,40 +1629,121 @@ public class VoxelWorld {
         return palette;
     }
 
+    /** Same as {@link #rebuildDirtyChunks(PhysicsSpace, Camera)} without camera priority. */
+    public void rebuildDirtyChunks(PhysicsSpace physicsSpace) {
+        rebuildDirtyChunks(physicsSpace, null);
+    }
+
     /**
-     * Rebuilds meshes only for dirty chunks. Call this once per frame in your update loop.
+     * Rebuilds meshes of dirty chunks. Call this once per frame in your update loop.
+     * Only the queued dirty chunks are visited: those in the camera frustum first, each group
+     * nearest first. Work stops once the {@link #setRebuildBudgetMs frame budget} is spent and
+     * the rest waits for the next frame; at least one chunk is handled per call.
+     * With a mesh service the dirty chunks are snapshotted here and meshed on the workers;
+     * their results are attached on a later frame, unless the chunk changed again meanwhile.
      */
-    public void rebuildDirtyChunks(PhysicsSpace physicsSpace) {
+    public void rebuildDirtyChunks(PhysicsSpace physicsSpace, Camera cam) {
         int rebuilt = 0;
-        for (int cx = 0; cx < chunkCountX; cx++) {
-            for (int cy = 0; cy < chunkCountY; cy++) {
-                for (int cz = 0; cz < chunkCountZ; cz++) {
-                    Chunk chunk = chunks[cx][cy][cz];
-                    if (chunk.isDirty()) {
-                        System.out.println("Rebuilding chunk: " + cx + "," + cy + "," + cz);
-                        chunk.buildMesh(assetManager, palette);
-                        chunk.updatePhysics(physicsSpace);
-                        chunk.clearDirty();
-                        rebuilt++;
-                    }
+        if (!dirtyQueue.isEmpty()) {
+            sortDirtyQueue(cam);
+            long deadline = System.nanoTime() + (long) (rebuildBudgetMs * 1_000_000L);
+            do {
+                Chunk chunk = dirtyQueue.get(rebuilt++);
+                if (canSkipMesh(chunk)) {
+                    if (chunk.hasCollision()) wakeBodiesNear(chunk, physicsSpace);
+                    chunk.releaseMesh(physicsSpace, physics());
+                    physicsChunks.remove(chunk);
+                } else if (meshService == null) {
+                    applyMeshes(chunk, callMeshJob(meshJob(snapshot(chunk))), textureArrayMode);
+                    refreshPhysics(chunk, physicsSpace);
+                } else {
+                    ChunkSnapshot snap = snapshot(chunk);
+                    boolean arrayMode = textureArrayMode;
+                    meshService.submit(snap, meshJob(snap),
+                            meshes -> applyMeshResult(chunk, snap, meshes, arrayMode, physicsSpace),
+                            error -> retryMesh(chunk, snap));
                 }
-            }
+                chunk.clearDirty();
+            } while (rebuilt < dirtyQueue.size() && System.nanoTime() < deadline);
+            dirtyQueue.subList(0, rebuilt).clear();
+        }
+        lastRebuildCount = rebuilt;
+    }
+
+    // Orders the queue: in-frustum chunks before the rest, each nearest to the camera first
+    private void sortDirtyQueue(Camera cam) {
+        int n = dirtyQueue.size();
+        if (cam == null || n < 2) return;
+        if (rebuildOrder.length < n) rebuildOrder = new long[Math.max(n, rebuildOrder.length * 2)];
+        Vector3f eye = cam.getLocation();
+        float half = chunkSize * 0.5f;
+        for (int i = 0; i < n; i++) {
+            Chunk c = dirtyQueue.get(i);
+            chunkBounds.setCenter(c.getChunkX() * chunkSize + half, c.getChunkY() * chunkSize + half, c.getChunkZ() * chunkSize + half);
+            chunkBounds.setXExtent(half);
+            chunkBounds.setYExtent(half);
+            chunkBounds.setZExtent(half);
+            cam.setPlaneState(0);
+            boolean visible = cam.contains(chunkBounds) != Camera.FrustumIntersect.Outside;
+            float dist2 = chunkBounds.getCenter().distanceSquared(eye);
+            // Key = [hidden:1][distance bits:31][queue index:31]; non-negative floats sort like their bits
+            rebuildOrder[i] = (visible ? 0L : 1L << 62) | (long) Float.floatToIntBits(dist2) << 31 | i;
         }
-        if (rebuilt > 0) System.out.println("Chunks rebuilt this frame: " + rebuilt);
-        if (rebuilt > 0 && physicsSpace != null) {
-            physicsSpace.update(0); // Force physics space to process changes
-            System.out.println("Physics space forced update after chunk physics changes.");
+        Arrays.sort(rebuildOrder, 0, n);
+        Chunk[] sorted = new Chunk[n];
+        for (int i = 0; i < n; i++) sorted[i] = dirtyQueue.get((int) (rebuildOrder[i] & Integer.MAX_VALUE));
+        dirtyQueue.clear();
+        dirtyQueue.addAll(Arrays.asList(sorted));
+    }
+
+    /**
+     * Wall-clock time {@link #rebuildDirtyChunks} may spend per frame before deferring the
+     * remaining dirty chunks (with a mesh service this covers snapshots and submission only).
+     */
+    public void setRebuildBudgetMs(float rebuildBudgetMs) {
+        this.rebuildBudgetMs = rebuildBudgetMs;
+    }
+
+    public float getRebuildBudgetMs() {
+        return rebuildBudgetMs;
+    }
+
+    /** Dirty chunks handled by the last {@link #rebuildDirtyChunks} call. */
+    public int getLastRebuildCount() {
+        return lastRebuildCount;
+    }
+
+    /** Dirty chunks still waiting for a rebuild. */
+    public int getDirtyChunkCount() {
+        return dirtyQueue.size();
+    }
+
+    // Runs on the render thread when an async build finishes
+    private void applyMeshResult(Chunk chunk, ChunkSnapshot snap, Mesh[] meshes, boolean arrayMode, PhysicsSpace physicsSpace) {
+        if (snap.getVersion() != chunk.getVersion()) {
+            // Edited while building: a newer build is (or will be) queued for this chunk
+            staleMeshResults++;
+            return;
         }
+        if (chunkAt(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ()) != chunk) return; // unloaded meanwhile
+        applyMeshes(chunk, meshes, arrayMode);
+        refreshPhysics(chunk, physicsSpace);
+    }
+
+    // Runs on the render thread when an async build threw: queue the chunk again rather than
+    // leaving its old mesh up. A chunk edited meanwhile is already queued, one unloaded is gone.
+    private void retryMesh(Chunk chunk, ChunkSnapshot snap) {
+        if (snap.getVersion() != chunk.getVersion()) return;
+        if (chunkAt(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ()) != chunk) return;
+        chunk.markDirty();
     }
 
     /**
      * Clears the dirty flag on all chunks. Call after initial buildMeshes().
      */
     public void clearAllDirtyFlags() {
-        for (int cx = 0; cx < chunkCountX; cx++)
-            for (int cy = 0; cy < chunkCountY; cy++)
-                for (int cz = 0; cz < chunkCountZ; cz++)
-                    chunks[cx][cy][cz].clearDirty();
+        for (Chunk chunk : dirtyQueue) chunk.clearDirty();
+        dirtyQueue.clear();
     }
 
     // simple int3
@@ -586,12 +1765,9 @@ public class VoxelWorld {
 
     // Novo método público (adiciona isto no final da classe)
     public void renderFlowers() {
-        // 1. Instanciar e Gerar Lógica
-        FlowerGenerator flowerGen = new FlowerGenerator(this, WORLD_SEED);
-        flowerGen.generateFlowers(sizeX, sizeZ);
-
-        // Obter a lista de flores geradas
-        List<Flower> flores = flowerGen.getPlantedFlowers();
+        if (!bounded) return; // FlowerGenerator percorre o mapa inteiro, que aqui não existe
+        // 1. As flores que o generateLayers já plantou (não se geram outra vez)
+        List<Flower> flores = plantedFlowers;
 
         System.out.println("🌸 A renderizar " + flores.size() + " flores com textura...");
 
@@ -24,6 +24,7 @@ public class GrassBlockType extends VoxelBlockType {
         // Isto faz com que os pixéis fiquem nítidos em vez de borrados quando te aproximas
         tex.setMagFilter(Texture.MagFilter.Nearest);
         tex.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+        tex.setWrap(Texture.WrapMode.Repeat);
 
         Material m = new Material(assetManager, "Common/MatDefs/Light/Lighting.j3md");
         m.setTexture("DiffuseMap", tex); // Aplica a textura
@@ -14,6 +14,12 @@ public class LeavesBlockType extends VoxelBlockType {
     }
     // isSolid() inherits true from base
 
+    @Override
+    public boolean isOpaque() { return false; }
+
+    @Override
+    public boolean isFoliage() { return true; }
+
     @Override
     public Material getMaterial(AssetManager assetManager) {
         // 1. Carregar a textura do ficheiro
@@ -24,6 +30,7 @@ public class LeavesBlockType extends VoxelBlockType {
         // Isto faz com que os pixéis fiquem nítidos em vez de borrados quando te aproximas
         tex.setMagFilter(Texture.MagFilter.Nearest);
         tex.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+        tex.setWrap(Texture.WrapMode.Repeat);
 
         Material m = new Material(assetManager, "Common/MatDefs/Light/Lighting.j3md");
         m.setTexture("DiffuseMap", tex); // Aplica a textura
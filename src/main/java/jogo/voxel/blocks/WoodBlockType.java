@@ -18,6 +18,9 @@ public class WoodBlockType extends VoxelBlockType {
         super("wood");
     }
 
+    @Override
+    public boolean isFoliage() { return true; }
+
     // isSolid() herda true da classe base
 
     @Override
@@ -30,6 +33,7 @@ public class WoodBlockType extends VoxelBlockType {
         // Isto faz com que os pixéis fiquem nítidos em vez de borrados quando te aproximas
         tex.setMagFilter(Texture.MagFilter.Nearest);
         tex.setMinFilter(Texture.MinFilter.NearestNoMipMaps);
+        tex.setWrap(Texture.WrapMode.Repeat);
 
         Material m = new Material(assetManager, "Common/MatDefs/Light/Lighting.j3md");
         m.setTexture("DiffuseMap", tex); // Aplica a textura
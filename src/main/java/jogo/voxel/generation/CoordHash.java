@@ -0,0 +1,25 @@
+package jogo.voxel.generation;
+
+/**
+ * Valores pseudo-aleatórios que dependem só do seed e da posição, em vez de um
+ * {@link java.util.Random} partilhado: o valor de (x, z) é sempre o mesmo, seja qual for a
+ * ordem ou a thread em que é pedido, por isso a geração pode correr em paralelo.
+ * O {@code salt} separa usos independentes (árvores, flores, ...) na mesma posição.
+ */
+public final class CoordHash {
+
+    private CoordHash() { }
+
+    /** 64 bits bem misturados para (x, z). */
+    public static long hash(long seed, int x, int z, int salt) {
+        long h = seed ^ (x * 0x9E3779B97F4A7C15L) ^ (z * 0xC2B2AE3D27D4EB4FL) ^ (salt * 0x165667B19E3779F9L);
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /** Uniforme em [0, 1). */
+    public static double unit(long seed, int x, int z, int salt) {
+        return (hash(seed, x, z, salt) >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,215 @@
+package jogo.voxel.generation;
+
+import jogo.voxel.Chunk;
+import jogo.voxel.VoxelPalette;
+
+import java.util.Arrays;
+
+/**
+ * Terreno 3D por densidade: um bloco é sólido onde {@code altura(x, z) - y + relevo(x, y, z) >= 0}.
+ * A altura vem do {@link TerrainGenerator}; o relevo, ruído 3D com amplitude maior nas
+ * montanhas, dá as saliências e as grutas junto à superfície.
+ * <p>
+ * O ruído 3D é a parte cara, por isso não se calcula em cada voxel: amostra-se numa grelha
+ * grossa alinhada com o mundo, de {@value #STEP_XZ} em {@value #STEP_XZ} blocos na horizontal
+ * e de {@value #STEP_Y} em {@value #STEP_Y} na vertical, e os voxels interpolam-na
+ * trilinearmente. A grelha de uma coluna serve todos os seus chunks, e como é a mesma grelha
+ * para todo o mundo os valores nas bordas entre colunas coincidem, sem costuras. Só se
+ * amostram as camadas perto da superfície: mais longe do que a amplitude máxima do relevo,
+ * a altura sozinha já decide.
+ * <p>
+ * Depois de construído só é lido, por isso pode ser partilhado por várias threads.
+ */
+public class DensityGenerator {
+    public static final int STEP_XZ = 4;
+    public static final int STEP_Y = 8;
+    private static final int S = Chunk.SIZE;
+    private static final int CELLS_XZ = S / STEP_XZ + 1;
+    private static final int DIRT_DEPTH = 5;
+    private static final float PLAINS_RELIEF = 1f;
+    private static final int MAX_RELIEF = 7;
+
+    private final Ruido ruido;
+    private final TerrainGenerator terrain;
+    private final int sizeY;
+    private final int columnHeight;   // whole chunks
+    private final int layers;         // lattice layers, y = 0, STEP_Y, ... columnHeight
+    private final ThreadLocal<int[]> heights = ThreadLocal.withInitial(() -> new int[S * S]);
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[S]);
+    private final ThreadLocal<float[]> amplitudes = ThreadLocal.withInitial(() -> new float[CELLS_XZ * CELLS_XZ]);
+    private final ThreadLocal<float[]> lattice;
+
+    public DensityGenerator(long seed, int sizeY, int groundHeight) {
+        this.ruido = new Ruido(seed);
+        this.terrain = new TerrainGenerator(ruido, sizeY, groundHeight);
+        this.sizeY = sizeY;
+        this.columnHeight = (sizeY + S - 1) / S * S;
+        this.layers = columnHeight / STEP_Y + 1;
+        this.lattice = ThreadLocal.withInitial(() -> new float[CELLS_XZ * layers * CELLS_XZ]);
+    }
+
+    /** Ints needed for the ids of one column of chunks. */
+    public int columnVolume() {
+        return S * columnHeight * S;
+    }
+
+    /**
+     * Fills {@code ids} with the blocks of the column of chunks starting at world
+     * (baseX, baseZ), indexed {@code (x * columnHeight + y) * 16 + z}; returns the highest
+     * solid y, or -1 if the column is empty. See {@link #copyChunk} for one chunk's ids.
+     */
+    public int fillColumn(int baseX, int baseZ, int[] ids) {
+        int[] h = heights.get();
+        float[] lat = lattice.get();
+        terrain.heightmap(baseX, baseZ, h);
+        int minH = Integer.MAX_VALUE, maxH = Integer.MIN_VALUE;
+        for (int v : h) {
+            minH = Math.min(minH, v);
+            maxH = Math.max(maxH, v);
+        }
+        // |relevo| never exceeds the largest corner amplitude, so beyond `reach` blocks from
+        // the surface the height alone decides; only the layers in between are sampled
+        float[] amplitudes = this.amplitudes.get();
+        ruido.bioma(amplitudes, baseX, baseZ, STEP_XZ, CELLS_XZ);
+        float maxAmplitude = 0;
+        for (int c = 0; c < CELLS_XZ * CELLS_XZ; c++) {
+            amplitudes[c] = amplitudeFor(amplitudes[c]);
+            maxAmplitude = Math.max(maxAmplitude, amplitudes[c]);
+        }
+        int reach = (int) Math.ceil(maxAmplitude);
+        int jLo = Math.max(0, Math.floorDiv(minH - reach, STEP_Y));
+        int jHi = Math.min(layers - 1, Math.floorDiv(maxH + reach, STEP_Y) + 1);
+        int ny = jHi - jLo + 1;
+        // One grid call for the whole lattice; lat[(i * ny + j - jLo) * CELLS_XZ + k]
+        ruido.relevo(lat, baseX, jLo * STEP_Y, baseZ, STEP_XZ, STEP_Y, CELLS_XZ, ny);
+        for (int i = 0; i < CELLS_XZ; i++) {
+            for (int j = 0; j < ny; j++) {
+                for (int k = 0; k < CELLS_XZ; k++) {
+                    lat[(i * ny + j) * CELLS_XZ + k] *= amplitudes[i * CELLS_XZ + k];
+                }
+            }
+        }
+
+        // Top-down, z fastest, so ids are written in order; depth counts solid blocks since
+        // the last air (-1 = in air) and decides grass, dirt or stone
+        int[] depth = this.depth.get();
+        int up = CELLS_XZ, right = ny * CELLS_XZ;
+        int top = -1;
+        int airFrom = Math.max(0, Math.min(columnHeight, maxH + reach + 1));   // all air from here up
+        for (int x = 0; x < S; x++) {
+            int i = x / STEP_XZ;
+            float fx = (x % STEP_XZ) / (float) STEP_XZ;
+            Arrays.fill(depth, -1);
+            Arrays.fill(ids, (x * columnHeight + airFrom) * S, (x + 1) * columnHeight * S, VoxelPalette.AIR_ID);
+            for (int y = airFrom - 1; y >= 0; y--) {
+                int j = y / STEP_Y;
+                float fy = (y % STEP_Y) / (float) STEP_Y;
+                int row = (x * columnHeight + y) * S;
+                for (int z = 0; z < S; z++) {
+                    boolean solid;
+                    int d = h[x * S + z] - y;
+                    if (y >= sizeY || d < -reach) {
+                        solid = false;
+                    } else if (d >= reach) {
+                        solid = true;
+                    } else {
+                        int c = (i * ny + j - jLo) * CELLS_XZ + z / STEP_XZ;   // corner (i, j, k)
+                        float r = trilinear(lat[c], lat[c + right], lat[c + up], lat[c + right + up],
+                                lat[c + 1], lat[c + right + 1], lat[c + up + 1], lat[c + right + up + 1],
+                                fx, fy, (z % STEP_XZ) / (float) STEP_XZ);
+                        solid = d + r >= 0;
+                    }
+                    int dz = solid ? depth[z] + 1 : -1;
+                    depth[z] = dz;
+                    ids[row + z] = blockAt(dz);
+                    if (solid && y > top) top = y;
+                }
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Copies the ids of the chunk starting at world y {@code baseY} out of a column filled by
+     * {@link #fillColumn}, in chunk storage order ({@code (x * 16 + y) * 16 + z}).
+     */
+    public void copyChunk(int[] columnIds, int baseY, int[] ids) {
+        for (int x = 0; x < S; x++) {
+            System.arraycopy(columnIds, (x * columnHeight + baseY) * S, ids, x * S * S, S * S);
+        }
+    }
+
+    /**
+     * Y of the highest solid block at world (x, z), or -1; the same block
+     * {@link #fillColumn} makes grass there. For single positions, e.g. trees rooted in a
+     * neighbouring column.
+     */
+    public int surfaceY(int x, int z) {
+        int height = terrain.height(x, z);
+        int bx = Math.floorDiv(x, STEP_XZ) * STEP_XZ, bz = Math.floorDiv(z, STEP_XZ) * STEP_XZ;
+        float fx = (x - bx) / (float) STEP_XZ, fz = (z - bz) / (float) STEP_XZ;
+        float a00 = amplitude(bx, bz), a10 = amplitude(bx + STEP_XZ, bz);
+        float a01 = amplitude(bx, bz + STEP_XZ), a11 = amplitude(bx + STEP_XZ, bz + STEP_XZ);
+        int reach = (int) Math.ceil(Math.max(Math.max(a00, a10), Math.max(a01, a11)));
+        // The four lattice corners of the current layer and of the one above, read going down
+        float[] lo = new float[4], hi = new float[4];
+        int layer = Integer.MIN_VALUE;
+        for (int y = Math.min(sizeY - 1, height + reach); y >= 0; y--) {
+            int d = height - y;
+            if (d >= reach) return y;
+            int j = y / STEP_Y;
+            if (j != layer) {
+                if (j == layer - 1) {
+                    float[] t = hi;
+                    hi = lo;
+                    lo = t;
+                } else {
+                    corners(bx, (j + 1) * STEP_Y, bz, a00, a10, a01, a11, hi);
+                }
+                corners(bx, j * STEP_Y, bz, a00, a10, a01, a11, lo);
+                layer = j;
+            }
+            float r = trilinear(lo[0], lo[1], hi[0], hi[1], lo[2], lo[3], hi[2], hi[3],
+                    fx, (y % STEP_Y) / (float) STEP_Y, fz);
+            if (d + r >= 0) return y;
+        }
+        return -1;
+    }
+
+    private void corners(int bx, int y, int bz, float a00, float a10, float a01, float a11, float[] out) {
+        out[0] = a00 * ruido.relevo(bx, y, bz);
+        out[1] = a10 * ruido.relevo(bx + STEP_XZ, y, bz);
+        out[2] = a01 * ruido.relevo(bx, y, bz + STEP_XZ);
+        out[3] = a11 * ruido.relevo(bx + STEP_XZ, y, bz + STEP_XZ);
+    }
+
+    // Quase plano nas planícies, até MAX_RELIEF blocos nas montanhas
+    private float amplitude(int x, int z) {
+        return amplitudeFor(ruido.bioma(x, z));
+    }
+
+    private static float amplitudeFor(float bioma) {
+        return PLAINS_RELIEF + (MAX_RELIEF - PLAINS_RELIEF) * TerrainGenerator.mountainWeight(bioma);
+    }
+
+    // Corners named c{x}{y}{z}; both callers pass them in this order so the results match exactly
+    private static float trilinear(float c000, float c100, float c010, float c110,
+                                   float c001, float c101, float c011, float c111,
+                                   float fx, float fy, float fz) {
+        float x00 = c000 + (c100 - c000) * fx;
+        float x10 = c010 + (c110 - c010) * fx;
+        float x01 = c001 + (c101 - c001) * fx;
+        float x11 = c011 + (c111 - c011) * fx;
+        float y0 = x00 + (x10 - x00) * fy;
+        float y1 = x01 + (x11 - x01) * fy;
+        return y0 + (y1 - y0) * fz;
+    }
+
+    // Relva à superfície (também no chão debaixo de uma saliência), terra por baixo, depois pedra
+    private static int blockAt(int depth) {
+        if (depth < 0) return VoxelPalette.AIR_ID;
+        if (depth == 0) return VoxelPalette.GRASS_ID;
+        if (depth <= DIRT_DEPTH) return VoxelPalette.DIRT_ID;
+        return VoxelPalette.STONE_ID;
+    }
+}
@@ -3,7 +3,6 @@ package jogo.voxel.generation;
 import jogo.voxel.VoxelWorld;
 import jogo.voxel.VoxelPalette;
 import jogo.gameobject.Flower;
-import java.util.Random;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,16 +14,18 @@ import java.util.List;
 public class FlowerGenerator {
 
     private final VoxelWorld world;
-    private final Random random;
+    private final long seed;
     private final List<Flower> plantedFlowers;
+    private final SpatialGrid flowerGrid = new SpatialGrid(MIN_FLOWER_DISTANCE);
 
     private static final float FLOWER_SPAWN_CHANCE = 0.10f;
     private static final int MIN_FLOWER_DISTANCE = 3;
     private static final int MARGIN = 4;
+    private static final int SALT_FLOWERS = 2;
 
     public FlowerGenerator(VoxelWorld world, long seed) {
         this.world = world;
-        this.random = new Random(seed);
+        this.seed = seed;
         this.plantedFlowers = new ArrayList<>();
     }
 
@@ -44,7 +45,7 @@ public class FlowerGenerator {
     }
 
     private boolean tryPlantFlower(int x, int z) {
-        int groundY = getHighestSolidY(x, z);
+        int groundY = world.getTopGroundY(x, z);
         if (groundY < 0 || groundY >= 255) return false;
 
         byte blockAtGround = world.getBlock(x, groundY, z);
@@ -58,40 +59,22 @@ public class FlowerGenerator {
             return false;
         }
 
-        if (random.nextFloat() >= FLOWER_SPAWN_CHANCE) {
+        // Sorteio pela posição: a mesma em qualquer ordem de geração
+        if (CoordHash.unit(seed, x, z, SALT_FLOWERS) >= FLOWER_SPAWN_CHANCE) {
             return false;
         }
 
         // ✅ APENAS CRIA O OBJETO FLOWER (sem voxels)
         Flower flower = new Flower("Rosa " + plantedFlowers.size(), x, groundY, z);
         plantedFlowers.add(flower);
+        flowerGrid.add(x, z);
 
         System.out.println("🌸 Flor plantada: " + flower.toString());
         return true;
     }
 
-    private int getHighestSolidY(int x, int z) {
-        for (int y = 255; y >= 0; y--) {
-            byte block = world.getBlock(x, y, z);
-            if (block != VoxelPalette.AIR_ID &&
-                    block != VoxelPalette.LEAVES_ID &&
-                    block != VoxelPalette.WOOD_ID) {
-                return y;
-            }
-        }
-        return -1;
-    }
-
     private boolean hasNearbyFlower(int x, int z, int radius) {
-        for (Flower flower : plantedFlowers) {
-            float dx = flower.getX() - x;
-            float dz = flower.getZ() - z;
-            double distance = Math.sqrt(dx * dx + dz * dz);
-            if (distance < radius) {
-                return true;
-            }
-        }
-        return false;
+        return flowerGrid.hasWithin(x, z, radius);
     }
 
     public List<Flower> getPlantedFlowers() {
@@ -18,7 +18,7 @@ public class OakTree extends Tree {
     }
 
     @Override
-    public void plant() {
+    protected void shape() {
         // 1. Planta o tronco
         plantTrunk();
 
@@ -1,4 +1,91 @@
 package jogo.voxel.generation;
 
+import jogo.fastnoise.FastNoiseLite;
+
+/**
+ * Fachada sobre o FastNoiseLite com as camadas de ruído do terreno, já configuradas.
+ * Depois de construído só é lido, por isso pode ser partilhado por várias threads.
+ * Todos os valores estão em [-1, 1], exceto {@link #montanha} que está em [0, 1].
+ * <p>
+ * Cada camada tem também uma versão em grelha, que enche um {@code float[]} de uma vez com
+ * os mesmos valores: é a que os geradores usam, uma chamada por coluna em vez de uma por bloco.
+ */
 public class Ruido {
+    private final FastNoiseLite bioma;
+    private final FastNoiseLite montanha;
+    private final FastNoiseLite planicie;
+    private final FastNoiseLite detalhe;
+    private final FastNoiseLite relevo;
+
+    public Ruido(long seed) {
+        int s = (int) (seed ^ (seed >>> 32));
+        // Grandes manchas: decide onde há montanhas e onde há planície
+        bioma = fractal(s, 0.006f, FastNoiseLite.FractalType.FBm, 3);
+        // Cristas das montanhas
+        montanha = fractal(s + 1, 0.012f, FastNoiseLite.FractalType.Ridged, 4);
+        // Ondulação suave das planícies
+        planicie = fractal(s + 2, 0.02f, FastNoiseLite.FractalType.FBm, 3);
+        // Irregularidade fina, um ou dois blocos
+        detalhe = fractal(s + 3, 0.08f, FastNoiseLite.FractalType.None, 1);
+        // 3D: saliências e grutas junto à superfície (caro, ver DensityGenerator)
+        relevo = fractal(s + 4, 0.03f, FastNoiseLite.FractalType.FBm, 3);
+    }
+
+    private static FastNoiseLite fractal(int seed, float frequency, FastNoiseLite.FractalType type, int octaves) {
+        FastNoiseLite noise = new FastNoiseLite(seed);
+        noise.SetNoiseType(FastNoiseLite.NoiseType.OpenSimplex2);
+        noise.SetFrequency(frequency);
+        noise.SetFractalType(type);
+        noise.SetFractalOctaves(octaves);
+        return noise;
+    }
+
+    public float bioma(float x, float z) {
+        return bioma.GetNoise(x, z);
+    }
+
+    public float montanha(float x, float z) {
+        return montanha.GetNoise(x, z) * 0.5f + 0.5f;
+    }
+
+    public float planicie(float x, float z) {
+        return planicie.GetNoise(x, z);
+    }
+
+    public float detalhe(float x, float z) {
+        return detalhe.GetNoise(x, z);
+    }
+
+    public float relevo(float x, float y, float z) {
+        return relevo.GetNoise(x, y, z);
+    }
+
+    /** {@link #bioma} at (x0 + i * step, z0 + k * step) into {@code out[i * count + k]}, for i, k < count. */
+    public void bioma(float[] out, float x0, float z0, float step, int count) {
+        bioma.GetNoiseGrid(out, x0, z0, step, step, count, count);
+    }
+
+    /** {@link #montanha} on a grid, laid out like {@link #bioma(float[], float, float, float, int)}. */
+    public void montanha(float[] out, float x0, float z0, float step, int count) {
+        montanha.GetNoiseGrid(out, x0, z0, step, step, count, count);
+        for (int i = 0; i < count * count; i++) out[i] = out[i] * 0.5f + 0.5f;
+    }
+
+    /** {@link #planicie} on a grid, laid out like {@link #bioma(float[], float, float, float, int)}. */
+    public void planicie(float[] out, float x0, float z0, float step, int count) {
+        planicie.GetNoiseGrid(out, x0, z0, step, step, count, count);
+    }
+
+    /** {@link #detalhe} on a grid, laid out like {@link #bioma(float[], float, float, float, int)}. */
+    public void detalhe(float[] out, float x0, float z0, float step, int count) {
+        detalhe.GetNoiseGrid(out, x0, z0, step, step, count, count);
+    }
+
+    /**
+     * {@link #relevo} at (x0 + i * stepXZ, y0 + j * stepY, z0 + k * stepXZ) into
+     * {@code out[(i * countY + j) * countXZ + k]}, for i, k < countXZ and j < countY.
+     */
+    public void relevo(float[] out, float x0, float y0, float z0, float stepXZ, float stepY, int countXZ, int countY) {
+        relevo.GetNoiseGrid(out, x0, y0, z0, stepXZ, stepY, stepXZ, countXZ, countY, countXZ);
+    }
 }
@@ -0,0 +1,74 @@
+package jogo.voxel.generation;
+
+import jogo.util.LongMap;
+
+import java.util.Arrays;
+
+/**
+ * Pontos 2D (x, z) arrumados numa grelha de células quadradas, para responder a "há algum
+ * ponto a menos de r daqui?" olhando só para as 3x3 células à volta, em vez de percorrer
+ * todos os pontos já colocados. Com raio igual ao lado da célula, chega para espaçar
+ * árvores e flores (amostragem tipo Poisson-disk): o custo total fica linear na área.
+ */
+public final class SpatialGrid {
+    private final int cellSize;
+    private final LongMap<Cell> cells = new LongMap<>();
+    private int size;
+
+    private static final class Cell {
+        int[] coords = new int[8];   // x0, z0, x1, z1, ...
+        int count;
+
+        void add(int x, int z) {
+            if (count * 2 == coords.length) coords = Arrays.copyOf(coords, coords.length * 2);
+            coords[count * 2] = x;
+            coords[count * 2 + 1] = z;
+            count++;
+        }
+    }
+
+    /** {@code cellSize} is the largest radius {@link #hasWithin} will be asked about. */
+    public SpatialGrid(int cellSize) {
+        if (cellSize <= 0) throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        this.cellSize = cellSize;
+    }
+
+    public void add(int x, int z) {
+        long key = key(Math.floorDiv(x, cellSize), Math.floorDiv(z, cellSize));
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell();
+            cells.put(key, cell);
+        }
+        cell.add(x, z);
+        size++;
+    }
+
+    /** True if some point lies at a distance strictly less than {@code radius} (at most the cell size). */
+    public boolean hasWithin(int x, int z, int radius) {
+        if (radius > cellSize) throw new IllegalArgumentException("radius " + radius + " > cell size " + cellSize);
+        int cx = Math.floorDiv(x, cellSize);
+        int cz = Math.floorDiv(z, cellSize);
+        long r2 = (long) radius * radius;
+        for (int i = cx - 1; i <= cx + 1; i++) {
+            for (int j = cz - 1; j <= cz + 1; j++) {
+                Cell cell = cells.get(key(i, j));
+                if (cell == null) continue;
+                for (int p = 0; p < cell.count; p++) {
+                    long dx = cell.coords[p * 2] - x;
+                    long dz = cell.coords[p * 2 + 1] - z;
+                    if (dx * dx + dz * dz < r2) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static long key(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,78 @@
+package jogo.voxel.generation;
+
+import jogo.voxel.Chunk;
+
+/**
+ * Alturas do terreno a partir de {@link Ruido}, a forma base que o {@link DensityGenerator}
+ * depois enche de blocos. A altura de cada (x, z) depende só do seed, por isso as colunas
+ * podem ser geradas em qualquer ordem (ou em paralelo).
+ */
+public class TerrainGenerator {
+    private static final int S = Chunk.SIZE;
+
+    private final Ruido ruido;
+    private final int sizeY;
+    private final int groundHeight;
+    // Per-thread grids for heightmap(): bioma, montanha, planicie, detalhe
+    private final ThreadLocal<float[][]> grids = ThreadLocal.withInitial(() -> new float[4][S * S]);
+
+    public TerrainGenerator(long seed, int sizeY, int groundHeight) {
+        this(new Ruido(seed), sizeY, groundHeight);
+    }
+
+    TerrainGenerator(Ruido ruido, int sizeY, int groundHeight) {
+        this.ruido = ruido;
+        this.sizeY = sizeY;
+        this.groundHeight = groundHeight;
+    }
+
+    /** Y of the grass block at world (x, z). */
+    public int height(int x, int z) {
+        float bioma = ruido.bioma(x, z);
+        boolean mountain = bioma > 0.1f;
+        return height(bioma, mountain ? ruido.montanha(x, z) : 0, mountain ? 0 : ruido.planicie(x, z), ruido.detalhe(x, z));
+    }
+
+    private int height(float bioma, float montanha, float planicie, float detalhe) {
+        float altura;
+        if (bioma > 0.1f) {
+            altura = groundHeight + mountainWeight(bioma) * (4 + montanha * 16f);
+        } else {
+            // Planície
+            altura = groundHeight + planicie * 3f;
+        }
+        altura += detalhe * 0.75f;
+        return Math.max(2, Math.min(sizeY - 7, (int) Math.floor(altura)));
+    }
+
+    // Montanha: entra aos poucos a partir da borda do bioma para não haver paredes
+    static float mountainWeight(float bioma) {
+        return Math.max(0f, Math.min(1f, (bioma - 0.1f) * 4f));
+    }
+
+    /**
+     * Heights of the 16x16 columns starting at world (baseX, baseZ), indexed {@code x * 16 + z};
+     * returns the highest one.
+     */
+    public int heightmap(int baseX, int baseZ, int[] heights) {
+        float[][] g = grids.get();
+        float[] bioma = g[0], montanha = g[1], planicie = g[2], detalhe = g[3];
+        // Uma grelha por camada, e só as camadas que a coluna usa: mesmos valores que height(x, z)
+        ruido.bioma(bioma, baseX, baseZ, 1, S);
+        boolean anyMountain = false, anyPlain = false;
+        for (float b : bioma) {
+            if (b > 0.1f) anyMountain = true;
+            else anyPlain = true;
+        }
+        if (anyMountain) ruido.montanha(montanha, baseX, baseZ, 1, S);
+        if (anyPlain) ruido.planicie(planicie, baseX, baseZ, 1, S);
+        ruido.detalhe(detalhe, baseX, baseZ, 1, S);
+        int max = 0;
+        for (int i = 0; i < S * S; i++) {
+            int h = height(bioma[i], montanha[i], planicie[i], detalhe[i]);
+            heights[i] = h;
+            if (h > max) max = h;
+        }
+        return max;
+    }
+}
@@ -1,5 +1,6 @@
 package jogo.voxel.generation;
 
+import jogo.voxel.BlockEdits;
 import jogo.voxel.VoxelWorld;
 import jogo.voxel.VoxelPalette;
 
@@ -12,6 +13,9 @@ public abstract class Tree {
     protected int z;
     protected int yBase;  // Altura do CHÃO (onde está a grama)
     protected VoxelWorld world;
+    // Blocos da árvore, escritos de uma vez por plant(): o tronco por cima de tudo, as folhas só no ar
+    private final BlockEdits blocks = new BlockEdits();
+    private final BlockEdits leaves = new BlockEdits();
 
     public Tree(int x, int z, int yBase, VoxelWorld world) {
         this.x = x;
@@ -24,7 +28,17 @@ public abstract class Tree {
     public int getZ() { return z; }
     public int getYBase() { return yBase; }
 
-    public abstract void plant();
+    /** Writes the blocks listed by {@link #shape} into the world, in two bulk edits. */
+    public void plant() {
+        shape();
+        world.applyEdits(blocks);
+        world.applyEdits(leaves, VoxelPalette.AIR_ID);   // nunca substitui o tronco nem o terreno
+        blocks.clear();
+        leaves.clear();
+    }
+
+    /** Lists the tree's blocks through {@link #placeBlock} and {@link #placeLeavesLayer}. */
+    protected abstract void shape();
     public abstract int getHeight();
     public abstract int getMaxRadius();
 
@@ -33,7 +47,7 @@ public abstract class Tree {
         if (x < 0 || x >= 256 || y < 0 || y >= 256 || z < 0 || z >= 256) {
             return;  // Ignora blocos fora do mapa
         }
-        world.setBlock(x, y, z, blockId);
+        blocks.add(x, y, z, Byte.toUnsignedInt(blockId));
     }
 
     protected void placeLeavesLayer(int centerX, int y, int centerZ, int radius) {
@@ -46,20 +60,14 @@ public abstract class Tree {
                 // Verifica limites
                 if (lx < 0 || lx >= 256 || lz < 0 || lz >= 256) continue;
 
-                // Não substitui o tronco
-                if (world.getBlock(lx, y, lz) == VoxelPalette.WOOD_ID) continue;
-
                 // Calcula distância
                 int dx = lx - centerX;
                 int dz = lz - centerZ;
                 double distance = Math.sqrt(dx * dx + dz * dz);
 
-                // Só coloca se for círculo
+                // Só coloca se for círculo (e só onde houver ar, ver plant)
                 if (distance <= radius - 0.5) {
-                    byte current = world.getBlock(lx, y, lz);
-                    if (current == VoxelPalette.AIR_ID) {
-                        world.setBlock(lx, y, lz, VoxelPalette.LEAVES_ID);
-                    }
+                    leaves.add(lx, y, lz, VoxelPalette.LEAVES_ID);
                 }
             }
         }
@@ -2,7 +2,6 @@ package jogo.voxel.generation;
 
 import jogo.voxel.VoxelWorld;
 import jogo.voxel.VoxelPalette;
-import java.util.Random;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -12,15 +11,17 @@ import java.util.List;
 public class TreeGenerator {
 
     private final VoxelWorld world;
-    private final Random random;
+    private final long seed;
     private final List<Tree> plantedTrees;
+    private final SpatialGrid treeGrid = new SpatialGrid(MIN_TREE_DISTANCE);
 
     private static final int TREE_SPAWN_CHANCE = 5;
     private static final int MIN_TREE_DISTANCE = 5;
+    private static final int SALT_TREES = 1;
 
     public TreeGenerator(VoxelWorld world, long seed) {
         this.world = world;
-        this.random = new Random(seed);
+        this.seed = seed;
         this.plantedTrees = new ArrayList<>();
     }
 
@@ -34,15 +35,8 @@ public class TreeGenerator {
         for (int x = 5; x < sizeX - 5; x += 1) {
             for (int z = 5; z < sizeZ - 5; z += 1) {
 
-                // 1. Encontra o Y do bloco sólido SUPERIOR
-                int topSolidY = -1;
-                for (int y = 255; y >= 0; y--) {
-                    byte block = world.getBlock(x, y, z);
-                    if (block != VoxelPalette.AIR_ID) {
-                        topSolidY = y;
-                        break;
-                    }
-                }
+                // 1. Y do bloco sólido SUPERIOR (heightmap da coluna)
+                int topSolidY = world.getTopSolidY(x, z);
 
                 if (topSolidY < 5 || topSolidY > 240) continue;
 
@@ -60,7 +54,7 @@ public class TreeGenerator {
                 }
 
                 // 5. Chance de spawn
-                if (random.nextInt(100) >= TREE_SPAWN_CHANCE) {
+                if (CoordHash.unit(seed, x, z, SALT_TREES) * 100 >= TREE_SPAWN_CHANCE) {
                     continue;
                 }
 
@@ -69,6 +63,7 @@ public class TreeGenerator {
                 Tree tree = new OakTree(x, topSolidY, z, world);
                 tree.plant();
                 plantedTrees.add(tree);
+                treeGrid.add(x, z);
                 arvoresGeradas++;
             }
         }
@@ -77,15 +72,7 @@ public class TreeGenerator {
     }
 
     private boolean hasNearbyTree(int x, int z, int radius) {
-        for (Tree tree : plantedTrees) {
-            int dx = tree.getX() - x;
-            int dz = tree.getZ() - z;
-            double distance = Math.sqrt(dx * dx + dz * dz);
-            if (distance < radius) {
-                return true;
-            }
-        }
-        return false;
+        return treeGrid.hasWithin(x, z, radius);
     }
 
     public int getTreeCount() {
@@ -0,0 +1,20 @@
+#import "Common/ShaderLib/GLSLCompat.glsllib"
+
+uniform sampler2DArray m_ColorMap;
+#ifdef LIT
+uniform vec3 m_SunDirection;
+uniform vec4 m_SunColor;
+uniform vec4 m_AmbientColor;
+#endif
+
+varying vec3 texCoord;
+varying vec3 normal;
+
+void main() {
+    vec4 color = texture2DArray(m_ColorMap, texCoord);
+    #ifdef LIT
+        float diffuse = max(dot(normalize(normal), -m_SunDirection), 0.0);
+        color.rgb *= m_AmbientColor.rgb + m_SunColor.rgb * diffuse;
+    #endif
+    gl_FragColor = color;
+}
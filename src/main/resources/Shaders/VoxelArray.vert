@@ -0,0 +1,17 @@
+#import "Common/ShaderLib/GLSLCompat.glsllib"
+
+uniform mat4 g_WorldViewProjectionMatrix;
+
+attribute vec3 inPosition;
+attribute vec3 inNormal;
+attribute vec3 inTexCoord; // (u, v, layer)
+
+varying vec3 texCoord;
+varying vec3 normal;
+
+void main() {
+    texCoord = inTexCoord;
+    // Chunk geometries have an identity world transform, so the normal is already in world space
+    normal = inNormal;
+    gl_Position = g_WorldViewProjectionMatrix * vec4(inPosition, 1.0);
+}
@@ -0,0 +1,115 @@
+package jogo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongMapTest {
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        Random random = new Random(1);
+        // A small key range keeps hitting existing keys; a wide one mostly misses
+        for (long range : new long[]{64, 4096, Long.MAX_VALUE}) {
+            LongMap<Integer> map = new LongMap<>(4);
+            Map<Long, Integer> expected = new HashMap<>();
+            for (int op = 0; op < 200_000; op++) {
+                long key = range == Long.MAX_VALUE ? random.nextLong() >> random.nextInt(64) : random.nextLong() % range;
+                int kind = random.nextInt(10);
+                if (kind < 5) {
+                    assertEquals(expected.put(key, op), map.put(key, op), "put " + key);
+                } else if (kind < 8) {
+                    assertEquals(expected.remove(key), map.remove(key), "remove " + key);
+                } else {
+                    assertEquals(expected.get(key), map.get(key), "get " + key);
+                }
+                assertEquals(expected.size(), map.size());
+            }
+            assertSameContents(expected, map);
+        }
+    }
+
+    @Test
+    void collidingKeysWrapAroundTheTable() {
+        // new LongMap(8) has 16 slots and does not grow below 9 entries
+        int mask = 15;
+        List<Long> keys = new ArrayList<>();
+        for (long k = 0; keys.size() < 7; k++) {
+            if (home(k, mask) == 14) keys.add(k);   // chain runs 14, 15, 0, 1, ...
+        }
+        List<Long> others = new ArrayList<>();
+        for (long k = 1_000_000; others.size() < 2; k++) {
+            if (home(k, mask) == 0) others.add(k);  // home inside the wrapped chain
+        }
+        Random random = new Random(2);
+        for (int round = 0; round < 500; round++) {
+            LongMap<Long> map = new LongMap<>(8);
+            Map<Long, Long> expected = new HashMap<>();
+            List<Long> all = new ArrayList<>(keys.subList(0, 5));
+            all.addAll(others);
+            Collections.shuffle(all, random);
+            for (long key : all) {
+                map.put(key, key);
+                expected.put(key, key);
+            }
+            // Remove in a random order, checking every survivor is still reachable
+            Collections.shuffle(all, random);
+            for (long key : all) {
+                assertEquals(expected.remove(key), map.remove(key));
+                assertNull(map.get(key));
+                assertSameContents(expected, map);
+            }
+            assertEquals(0, map.size());
+        }
+    }
+
+    @Test
+    void removingAMissingKeyChangesNothing() {
+        LongMap<String> map = new LongMap<>();
+        map.put(1, "a");
+        map.put(-1, "b");
+        assertNull(map.remove(2));
+        assertEquals(2, map.size());
+        assertEquals("a", map.get(1));
+        assertEquals("b", map.get(-1));
+    }
+
+    @Test
+    void clearEmptiesAndStaysUsable() {
+        LongMap<Integer> map = new LongMap<>();
+        for (int i = 0; i < 100; i++) map.put(i * 31L, i);
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(31));
+        map.put(31, 7);
+        assertEquals(7, map.get(31));
+    }
+
+    @Test
+    void nullValuesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new LongMap<String>().put(1, null));
+    }
+
+    // Same home slot as LongMap.slot for a table of mask + 1 slots
+    private static int home(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static <V> void assertSameContents(Map<Long, V> expected, LongMap<V> map) {
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, V> e : expected.entrySet()) assertEquals(e.getValue(), map.get(e.getKey()), "key " + e.getKey());
+        int[] visited = {0};
+        map.forEachValue(v -> visited[0]++);
+        assertEquals(expected.size(), visited[0]);
+    }
+}
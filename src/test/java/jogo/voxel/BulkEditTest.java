@@ -0,0 +1,129 @@
+package jogo.voxel;
+
+import com.jme3.asset.DesktopAssetManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Bulk edits must leave the world exactly as the same edits made one setBlockId at a time. */
+class BulkEditTest {
+    private static final int SX = 96, SY = 64, SZ = 96;
+
+    private VoxelWorld bulk;
+    private VoxelWorld perVoxel;
+
+    @BeforeEach
+    void generate() {
+        bulk = world();
+        perVoxel = world();
+    }
+
+    @Test
+    void fillBoxMatchesSetBlock() {
+        Random random = new Random(1);
+        for (int k = 0; k < 60; k++) {
+            int[] box = randomBox(random);
+            int id = random.nextInt(7);
+            int changed = 0;
+            for (int x = Math.min(box[0], box[3]); x <= Math.max(box[0], box[3]); x++)
+                for (int y = Math.min(box[1], box[4]); y <= Math.max(box[1], box[4]); y++)
+                    for (int z = Math.min(box[2], box[5]); z <= Math.max(box[2], box[5]); z++)
+                        if (set(x, y, z, id, -1)) changed++;
+            assertEquals(changed, bulk.fillBox(box[0], box[1], box[2], box[3], box[4], box[5], id));
+        }
+        assertSameWorld();
+    }
+
+    @Test
+    void replaceMatchesSetBlock() {
+        Random random = new Random(2);
+        for (int k = 0; k < 60; k++) {
+            int[] box = randomBox(random);
+            int from = random.nextInt(7), to = random.nextInt(7);
+            int changed = 0;
+            for (int x = Math.min(box[0], box[3]); x <= Math.max(box[0], box[3]); x++)
+                for (int y = Math.min(box[1], box[4]); y <= Math.max(box[1], box[4]); y++)
+                    for (int z = Math.min(box[2], box[5]); z <= Math.max(box[2], box[5]); z++)
+                        if (set(x, y, z, to, from)) changed++;
+            assertEquals(changed, bulk.replace(box[0], box[1], box[2], box[3], box[4], box[5], from, to));
+        }
+        assertSameWorld();
+    }
+
+    @Test
+    void fillSphereMatchesSetBlock() {
+        Random random = new Random(3);
+        for (int k = 0; k < 60; k++) {
+            int cx = random.nextInt(SX + 10) - 5, cy = random.nextInt(SY + 6) - 3, cz = random.nextInt(SZ + 10) - 5;
+            float radius = random.nextFloat() * 12;
+            int id = random.nextInt(7);
+            int r = (int) radius, changed = 0;
+            for (int x = cx - r; x <= cx + r; x++)
+                for (int y = cy - r; y <= cy + r; y++)
+                    for (int z = cz - r; z <= cz + r; z++) {
+                        int dx = x - cx, dy = y - cy, dz = z - cz;
+                        if (dx * dx + dy * dy + dz * dz <= radius * radius && set(x, y, z, id, -1)) changed++;
+                    }
+            assertEquals(changed, bulk.fillSphere(cx, cy, cz, radius, id));
+        }
+        assertSameWorld();
+    }
+
+    @Test
+    void applyEditsMatchesSetBlock() {
+        Random random = new Random(4);
+        for (int k = 0; k < 60; k++) {
+            // Few edits go voxel by voxel, many repack whole chunks; repeats of a block must keep the last
+            int n = k % 2 == 0 ? 20 : 3000;
+            int onlyReplacing = k % 3 == 0 ? 0 : -1;
+            int x0 = random.nextInt(SX + 10) - 5, z0 = random.nextInt(SZ + 10) - 5;
+            BlockEdits edits = new BlockEdits();
+            for (int i = 0; i < n; i++) {
+                edits.add(x0 + random.nextInt(20), random.nextInt(SY), z0 + random.nextInt(20), random.nextInt(7));
+            }
+            int changed = 0;
+            for (int i = 0; i < n; i++) {
+                if (set(edits.x(i), edits.y(i), edits.z(i), edits.id(i), onlyReplacing)) changed++;
+            }
+            assertEquals(changed, bulk.applyEdits(edits, onlyReplacing));
+        }
+        assertSameWorld();
+    }
+
+    // The reference edit: one setBlockId, counted only if the block changes
+    private boolean set(int x, int y, int z, int id, int onlyReplacing) {
+        if (x < 0 || x >= SX || y < 0 || y >= SY || z < 0 || z >= SZ) return false;
+        int current = perVoxel.getBlockId(x, y, z);
+        if (current == id || (onlyReplacing >= 0 && current != onlyReplacing)) return false;
+        perVoxel.setBlockId(x, y, z, id);
+        return true;
+    }
+
+    private void assertSameWorld() {
+        for (int x = 0; x < SX; x++) {
+            for (int z = 0; z < SZ; z++) {
+                for (int y = 0; y < SY; y++) {
+                    assertEquals(perVoxel.getBlockId(x, y, z), bulk.getBlockId(x, y, z), "block " + x + "," + y + "," + z);
+                }
+                assertEquals(perVoxel.getTopSolidY(x, z), bulk.getTopSolidY(x, z), "top solid " + x + "," + z);
+                assertEquals(perVoxel.getTopOpaqueY(x, z), bulk.getTopOpaqueY(x, z), "top opaque " + x + "," + z);
+                assertEquals(perVoxel.getTopGroundY(x, z), bulk.getTopGroundY(x, z), "top ground " + x + "," + z);
+            }
+        }
+    }
+
+    // Two corners in any order, partly outside the world at times
+    private static int[] randomBox(Random random) {
+        int x0 = random.nextInt(SX + 10) - 5, y0 = random.nextInt(SY + 6) - 3, z0 = random.nextInt(SZ + 10) - 5;
+        return new int[]{x0, y0, z0, x0 + random.nextInt(40) - 20, y0 + random.nextInt(30) - 15, z0 + random.nextInt(40) - 20};
+    }
+
+    private static VoxelWorld world() {
+        VoxelWorld world = new VoxelWorld(new DesktopAssetManager(true), SX, SY, SZ);
+        world.generateLayers();
+        return world;
+    }
+}
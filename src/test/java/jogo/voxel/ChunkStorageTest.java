@@ -0,0 +1,158 @@
+package jogo.voxel;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkStorageTest {
+    private static final int VOLUME = ChunkStorage.VOLUME;
+
+    @Test
+    void widensAsTypesAppear() {
+        ChunkStorage s = new ChunkStorage(0);
+        assertEquals(0, s.getBitsPerEntry());
+        // Types present -> expected width: 2 -> 1, 3 -> 2, 5 -> 4, 17 -> 8, 257 -> 16
+        int[] types = {2, 3, 5, 17, 257};
+        int[] widths = {1, 2, 4, 8, 16};
+        int[] ref = new int[VOLUME];
+        int next = 1;
+        for (int step = 0; step < types.length; step++) {
+            for (; next < types[step]; next++) {
+                s.set(next * 7, next);
+                ref[next * 7] = next;
+            }
+            assertEquals(widths[step], s.getBitsPerEntry(), types[step] + " types");
+            assertEquals(types[step], s.getDistinctIds());
+            assertArrayEquals(ref, unpack(s));
+        }
+    }
+
+    @Test
+    void randomEditsMatchPlainArray() {
+        Random random = new Random(1);
+        for (int types : new int[]{1, 2, 3, 5, 17, 200, 2000, 40000}) {
+            ChunkStorage s = new ChunkStorage(0);
+            int[] ref = new int[VOLUME];
+            for (int k = 0; k < 20000; k++) {
+                int i = random.nextInt(VOLUME);
+                int id = random.nextInt(types);
+                s.set(i, id);
+                ref[i] = id;
+            }
+            for (int i = 0; i < VOLUME; i++) assertEquals(ref[i], s.get(i), "voxel " + i + " with " + types + " types");
+            assertArrayEquals(ref, unpack(s));
+        }
+    }
+
+    @Test
+    void freedPaletteSlotsAreReused() {
+        ChunkStorage s = new ChunkStorage(0);
+        // Many types over time, but never more than three at once (air, old and new id)
+        for (int id = 1; id < 1000; id++) {
+            for (int i = 0; i < VOLUME; i += 2) s.set(i, id);
+        }
+        assertEquals(2, s.getBitsPerEntry());
+        assertEquals(2, s.getDistinctIds());
+    }
+
+    @Test
+    void fillDropsPackedData() {
+        ChunkStorage s = storageOf(randomIds(new Random(2), 0, 300));
+        s.fill(7);
+        assertTrue(s.isUniform());
+        assertEquals(7, s.getUniformId());
+        assertEquals(VOLUME, s.count(7));
+    }
+
+    @Test
+    void ofMatchesPerVoxelSets() {
+        Random random = new Random(3);
+        for (int it = 0; it < 200; it++) {
+            // Small ids go through of()'s direct table, large ones through the palette search
+            int base = it % 2 == 0 ? random.nextInt(500) : 70000 + random.nextInt(70000);
+            int kinds = new int[]{1, 2, 3, 17, 300, 4096}[it % 6];
+            int[] ids = randomIds(random, base, kinds);
+            ChunkStorage bulk = ChunkStorage.of(ids);
+            ChunkStorage perVoxel = storageOf(ids);
+            assertArrayEquals(ids, unpack(bulk));
+            assertEquals(perVoxel.getDistinctIds(), bulk.getDistinctIds());
+            assertEquals(perVoxel.getBitsPerEntry(), bulk.getBitsPerEntry());
+            // And it stays editable afterwards
+            for (int k = 0; k < 200; k++) {
+                int i = random.nextInt(VOLUME), id = base + random.nextInt(kinds + 2);
+                bulk.set(i, id);
+                ids[i] = id;
+            }
+            assertArrayEquals(ids, unpack(bulk));
+        }
+    }
+
+    @Test
+    void snapshotIsUnchangedByLaterEdits() {
+        int[] ids = randomIds(new Random(4), 0, 40);
+        ChunkStorage s = ChunkStorage.of(ids);
+        ChunkStorage snap = s.snapshot();
+        s.set(0, 999);
+        s.set(1, 1000);
+        s.fill(3);
+        assertArrayEquals(ids, unpack(snap));
+        assertEquals(3, s.getUniformId());
+    }
+
+    @Test
+    void editingSnapshotLeavesOriginalAlone() {
+        int[] ids = randomIds(new Random(5), 0, 40);
+        ChunkStorage s = ChunkStorage.of(ids);
+        ChunkStorage snap = s.snapshot();
+        for (int i = 0; i < VOLUME; i += 3) snap.set(i, 500 + i % 30);
+        assertArrayEquals(ids, unpack(s));
+        // The original copies on its own next edit too
+        int[] edited = unpack(snap);
+        s.set(5, 77);
+        assertArrayEquals(edited, unpack(snap));
+    }
+
+    @Test
+    void writeReadRoundTrip() throws IOException {
+        Random random = new Random(6);
+        for (int kinds : new int[]{1, 2, 5, 17, 300}) {
+            int[] ids = randomIds(random, 0, kinds);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ChunkStorage.of(ids).write(new DataOutputStream(bytes));
+            ChunkStorage read = ChunkStorage.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertArrayEquals(ids, unpack(read));
+            read.set(10, 4242);
+            ids[10] = 4242;
+            assertArrayEquals(ids, unpack(read));
+        }
+    }
+
+    private static int[] randomIds(Random random, int base, int kinds) {
+        int[] ids = new int[VOLUME];
+        // Runs of equal ids, like terrain, rather than pure noise
+        int run = 1 + random.nextInt(600);
+        for (int i = 0; i < VOLUME; i++) ids[i] = base + (random.nextInt(run) == 0 ? random.nextInt(kinds) : (i / run) % kinds);
+        return ids;
+    }
+
+    private static ChunkStorage storageOf(int[] ids) {
+        ChunkStorage s = new ChunkStorage(ids[0]);
+        for (int i = 0; i < VOLUME; i++) s.set(i, ids[i]);
+        return s;
+    }
+
+    private static int[] unpack(ChunkStorage s) {
+        int[] ids = new int[VOLUME];
+        s.copyTo(ids);
+        return ids;
+    }
+}
@@ -0,0 +1,54 @@
+package jogo.voxel;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Time and heap per chunk for {@link MeshBuilder} against {@link LegacyMeshBuilder}: a
+ * 16x16x16 chunk with three faces per voxel, built {@value #ROUNDS} times per round.
+ * The new builder is cleared and reused, as Chunk does. Run with {@code gradle bench};
+ * {@link MeshBuilderTest} checks that both produce the same buffers.
+ */
+public final class MeshBuilderBenchmark {
+    private static final int ROUNDS = 200;
+    private static final MeshBuilder.Face[] FACES = MeshBuilder.Face.values();
+    private static final LegacyMeshBuilder.Face[] LEGACY_FACES = LegacyMeshBuilder.Face.values();
+
+    public static void main(String[] args) {
+        ThreadMXBean mx = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MeshBuilder builder = new MeshBuilder();
+        builder.setRandomizeUV(true);
+        for (int round = 0; round < 5; round++) {
+            long t0 = System.nanoTime(), a0 = mx.getCurrentThreadAllocatedBytes();
+            for (int r = 0; r < ROUNDS; r++) {
+                LegacyMeshBuilder legacy = new LegacyMeshBuilder();
+                legacy.setRandomizeUV(true);
+                for (int x = 0; x < 16; x++) {
+                    for (int y = 0; y < 16; y++) {
+                        for (int z = 0; z < 16; z++) {
+                            for (int k = 0; k < 3; k++) legacy.addVoxelFace(x, y, z, LEGACY_FACES[k]);
+                        }
+                    }
+                }
+                legacy.build();
+            }
+            long t1 = System.nanoTime(), a1 = mx.getCurrentThreadAllocatedBytes();
+            for (int r = 0; r < ROUNDS; r++) {
+                builder.clear();
+                for (int x = 0; x < 16; x++) {
+                    for (int y = 0; y < 16; y++) {
+                        for (int z = 0; z < 16; z++) {
+                            for (int k = 0; k < 3; k++) builder.addVoxelFace(x, y, z, FACES[k]);
+                        }
+                    }
+                }
+                builder.build();
+            }
+            long t2 = System.nanoTime(), a2 = mx.getCurrentThreadAllocatedBytes();
+            System.out.printf("legacy %.2f ms, %d KB per chunk | new %.2f ms, %d KB per chunk%n",
+                    (t1 - t0) / (ROUNDS * 1e6), (a1 - a0) / ROUNDS / 1024,
+                    (t2 - t1) / (ROUNDS * 1e6), (a2 - a1) / ROUNDS / 1024);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package jogo.voxel;
+
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MeshBuilderTest {
+
+    @Test
+    void voxelFacesMatchLegacyBuilder() {
+        assertSameAsLegacy(false);
+    }
+
+    @Test
+    void randomizedUvsMatchLegacyBuilder() {
+        assertSameAsLegacy(true);
+    }
+
+    @Test
+    void clearedBuilderStartsOver() {
+        MeshBuilder builder = new MeshBuilder();
+        addFaces(builder, 3);
+        builder.clear();
+        addFaces(builder, 1);
+        MeshBuilder fresh = new MeshBuilder();
+        addFaces(fresh, 1);
+        assertSameBuffers(fresh.build(), builder.build());
+    }
+
+    private static void assertSameAsLegacy(boolean randomizeUV) {
+        LegacyMeshBuilder legacy = new LegacyMeshBuilder();
+        legacy.setRandomizeUV(randomizeUV);
+        MeshBuilder builder = new MeshBuilder();
+        builder.setRandomizeUV(randomizeUV);
+        // Negative coordinates too, so the UV hash sees both signs
+        for (int x = -20; x < 20; x++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = -4; z < 12; z++) {
+                    for (MeshBuilder.Face face : MeshBuilder.Face.values()) {
+                        legacy.addVoxelFace(x, y, z, LegacyMeshBuilder.Face.values()[face.ordinal()]);
+                        builder.addVoxelFace(x, y, z, face);
+                    }
+                }
+            }
+        }
+        assertSameBuffers(legacy.build(), builder.build());
+    }
+
+    private static void addFaces(MeshBuilder builder, int rows) {
+        for (int x = 0; x < rows; x++) {
+            for (MeshBuilder.Face face : MeshBuilder.Face.values()) builder.addVoxelFace(x, 0, 0, face);
+        }
+    }
+
+    static void assertSameBuffers(Mesh expected, Mesh actual) {
+        assertArrayEquals(floats(expected, VertexBuffer.Type.Position), floats(actual, VertexBuffer.Type.Position), "positions");
+        assertArrayEquals(floats(expected, VertexBuffer.Type.Normal), floats(actual, VertexBuffer.Type.Normal), "normals");
+        assertArrayEquals(floats(expected, VertexBuffer.Type.TexCoord), floats(actual, VertexBuffer.Type.TexCoord), "uvs");
+        assertArrayEquals(indices(expected), indices(actual), "indices");
+        assertEquals(expected.getTriangleCount(), actual.getTriangleCount());
+    }
+
+    static float[] floats(Mesh mesh, VertexBuffer.Type type) {
+        FloatBuffer buffer = (FloatBuffer) mesh.getBuffer(type).getData();
+        float[] out = new float[buffer.limit()];
+        buffer.duplicate().rewind().get(out);
+        return out;
+    }
+
+    static int[] indices(Mesh mesh) {
+        IntBuffer buffer = (IntBuffer) mesh.getBuffer(VertexBuffer.Type.Index).getData();
+        int[] out = new int[buffer.limit()];
+        buffer.duplicate().rewind().get(out);
+        return out;
+    }
+}
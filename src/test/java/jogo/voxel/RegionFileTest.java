@@ -0,0 +1,133 @@
+package jogo.voxel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionFileTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeReadReopenRoundTrip() throws IOException {
+        Path file = dir.resolve("r.0.0.0.vxr");
+        Random random = new Random(3);
+        Map<Integer, int[]> expected = new HashMap<>();
+        RegionFile region = new RegionFile(file);
+        try {
+            for (int it = 0; it < 2000; it++) {
+                int index = random.nextInt(RegionFile.ENTRIES / 8);
+                ChunkStorage storage = randomStorage(random);
+                region.write(index, storage);
+                expected.put(index, unpack(storage));
+                if (it % 500 == 499) {
+                    region.close();
+                    region = new RegionFile(file);
+                }
+                int probe = random.nextInt(RegionFile.ENTRIES / 8);
+                assertStored(expected.get(probe), region.read(probe));
+            }
+            region.close();
+            region = new RegionFile(file);
+            for (int index = 0; index < RegionFile.ENTRIES; index++) {
+                assertStored(expected.get(index), region.read(index));
+            }
+        } finally {
+            region.close();
+        }
+    }
+
+    @Test
+    void uniformAndAirChunksNeedNoSectors() throws IOException {
+        Path file = dir.resolve("r.1.0.0.vxr");
+        try (RegionFile region = new RegionFile(file)) {
+            region.write(0, new ChunkStorage(5));
+            region.write(1, null);
+        }
+        try (RegionFile region = new RegionFile(file)) {
+            assertEquals(5, region.read(0).getUniformId());
+            assertEquals(VoxelPalette.AIR_ID, region.read(1).getUniformId());
+            assertNull(region.read(2));
+        }
+        assertEquals(RegionFile.ENTRIES * 4, Files.size(file));
+    }
+
+    @Test
+    void unflushedRewriteLeavesLastFlushOnDisk() throws IOException {
+        Path file = dir.resolve("r.2.0.0.vxr");
+        Random random = new Random(4);
+        ChunkStorage first = randomStorage(random, 40);
+        ChunkStorage second = randomStorage(random, 40);
+        try (RegionFile region = new RegionFile(file)) {
+            region.write(3, first);
+            region.flush();
+            // Fits in the old sectors, which must still not be written over
+            region.write(3, second);
+            region.write(4, second);
+            // What a crash now would leave: only the flushed header and what it points at
+            try (RegionFile onDisk = new RegionFile(file)) {
+                assertStored(unpack(first), onDisk.read(3));
+                assertNull(onDisk.read(4));
+            }
+            region.flush();
+            try (RegionFile onDisk = new RegionFile(file)) {
+                assertStored(unpack(second), onDisk.read(3));
+                assertStored(unpack(second), onDisk.read(4));
+            }
+        }
+    }
+
+    @Test
+    void sectorsAreReusedAfterFlush() throws IOException {
+        Path file = dir.resolve("r.3.0.0.vxr");
+        Random random = new Random(5);
+        try (RegionFile region = new RegionFile(file)) {
+            for (int it = 0; it < 200; it++) {
+                region.write(0, randomStorage(random, 300));
+                region.flush();
+            }
+        }
+        // One copy being written and one committed, not one per save
+        long sectors = (Files.size(file) - RegionFile.ENTRIES * 4L) / RegionFile.SECTOR_BYTES;
+        assertTrue(sectors <= 8, sectors + " payload sectors");
+    }
+
+    private static ChunkStorage randomStorage(Random random) {
+        ChunkStorage storage = new ChunkStorage(random.nextInt(3) == 0 ? 0 : random.nextInt(5));
+        int kinds = new int[]{1, 2, 5, 40, 300, 5000}[random.nextInt(6)];
+        int edits = random.nextInt(5) == 0 ? 0 : random.nextInt(ChunkStorage.VOLUME);
+        for (int e = 0; e < edits; e++) storage.set(random.nextInt(ChunkStorage.VOLUME), random.nextInt(kinds));
+        return storage;
+    }
+
+    private static ChunkStorage randomStorage(Random random, int kinds) {
+        ChunkStorage storage = new ChunkStorage(0);
+        for (int i = 0; i < ChunkStorage.VOLUME; i++) storage.set(i, random.nextInt(kinds));
+        return storage;
+    }
+
+    private static void assertStored(int[] expected, ChunkStorage stored) {
+        if (expected == null) {
+            assertNull(stored);
+        } else {
+            assertArrayEquals(expected, unpack(stored));
+        }
+    }
+
+    private static int[] unpack(ChunkStorage storage) {
+        int[] ids = new int[ChunkStorage.VOLUME];
+        storage.copyTo(ids);
+        return ids;
+    }
+}
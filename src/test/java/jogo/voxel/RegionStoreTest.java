@@ -0,0 +1,47 @@
+package jogo.voxel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RegionStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void failedWriteIsKeptAndRetriedOnTheNextFlush() throws IOException {
+        // A directory where the region file should be makes opening it fail
+        Path blocker = Files.createDirectories(dir.resolve("r.0.0.0.vxr"));
+        try (RegionStore store = new RegionStore(dir, 1, 1)) {
+            store.save(1, 2, 3, new ChunkStorage(5));
+            assertThrows(IllegalStateException.class, store::flush);
+            // Still queued: a load sees the edit, not the generated chunk
+            assertEquals(1, store.getQueuedCount());
+            assertEquals(5, store.load(1, 2, 3).getUniformId());
+
+            Files.delete(blocker);
+            store.flush();
+            assertEquals(0, store.getQueuedCount());
+        }
+        try (RegionStore store = new RegionStore(dir, 1, 1)) {
+            assertEquals(5, store.load(1, 2, 3).getUniformId());
+        }
+    }
+
+    @Test
+    void stampFromAnotherSeedIsRefused() throws IOException {
+        new RegionStore(dir, 1, 1).close();
+        String stamp = Files.readString(dir.resolve("world.properties"));
+        assertThrows(IOException.class, () -> new RegionStore(dir, 2, 1));
+        assertThrows(IOException.class, () -> new RegionStore(dir, 1, 2));
+        // The refused opens left the original stamp alone
+        assertEquals(stamp, Files.readString(dir.resolve("world.properties")));
+        new RegionStore(dir, 1, 1).close();
+    }
+}
@@ -0,0 +1,136 @@
+package jogo.voxel;
+
+import com.jme3.asset.DesktopAssetManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VoxelMotorTest {
+    private static final int SIZE = 32;
+    private static final int FLOOR = 5;   // top face of the floor
+
+    private VoxelWorld world;
+    private VoxelMotor motor;
+
+    @BeforeEach
+    void flatWorld() {
+        world = new VoxelWorld(new DesktopAssetManager(true), SIZE, SIZE, SIZE);
+        world.fillBox(0, 0, 0, SIZE - 1, FLOOR - 1, SIZE - 1, VoxelPalette.STONE_ID);
+        motor = new VoxelMotor(world);
+    }
+
+    @Test
+    void fallingBodyLandsFlushOnTheFloor() {
+        VoxelBody body = body(8.5f, 20.3f, 8.5f);
+        run(body, 120);
+        assertEquals(FLOOR, body.y);
+        assertTrue(body.isOnGround());
+        assertEquals(0f, body.vy);
+    }
+
+    @Test
+    void fastFallDoesNotTunnelThroughAThinFloor() {
+        world.fillBox(0, 0, 0, SIZE - 1, FLOOR - 1, SIZE - 1, VoxelPalette.AIR_ID);
+        world.setBlockId(8, 10, 8, VoxelPalette.STONE_ID);
+        VoxelBody body = body(8.5f, 30f, 8.5f);
+        body.vy = -60f;   // a block per tick
+        run(body, 60);
+        assertEquals(11, body.y);
+    }
+
+    @Test
+    void wallStopsTheBoxFlush() {
+        world.fillBox(12, FLOOR, 0, 12, FLOOR + 4, SIZE - 1, VoxelPalette.STONE_ID);
+        VoxelBody body = body(8.5f, FLOOR, 8.5f);
+        body.setWalkDirection(10f, 0);
+        run(body, 120);
+        assertEquals(12 - body.getHalfWidth(), body.x, 1e-6);
+        assertEquals(0f, body.vx);
+        // And the other way along z
+        world.fillBox(0, FLOOR, 4, 11, FLOOR + 4, 4, VoxelPalette.STONE_ID);
+        body.setWalkDirection(0, -10f);
+        run(body, 120);
+        assertEquals(5 + body.getHalfWidth(), body.z, 1e-6);
+    }
+
+    @Test
+    void stepHeightClimbsOneBlockButNotTwo() {
+        // A platform one block high from x = 12, with a wall two high on it at x = 20
+        world.fillBox(12, FLOOR, 0, SIZE - 1, FLOOR, SIZE - 1, VoxelPalette.STONE_ID);
+        world.fillBox(20, FLOOR + 1, 0, 20, FLOOR + 2, SIZE - 1, VoxelPalette.STONE_ID);
+        VoxelBody body = body(8.5f, FLOOR, 8.5f);
+        body.setStepHeight(1f);
+        body.setWalkDirection(4f, 0);
+        run(body, 240);
+        assertEquals(FLOOR + 1, body.y);
+        assertEquals(20 - body.getHalfWidth(), body.x, 1e-6);
+
+        // The default step height (0.6) does not climb a whole block
+        VoxelBody low = body(8.5f, FLOOR, 16.5f);
+        low.setWalkDirection(4f, 0);
+        run(low, 120);
+        assertEquals(FLOOR, low.y);
+        assertEquals(12 - low.getHalfWidth(), low.x, 1e-6);
+    }
+
+    @Test
+    void sandSlowsTheBodyDownUntilItLeavesTheGround() {
+        VoxelBody onStone = body(2.5f, FLOOR, 4.5f);
+        onStone.setWalkDirection(4f, 0);
+        run(onStone, 120);
+        float stone = (float) (onStone.x - 2.5);
+
+        world.fillBox(0, FLOOR - 1, 10, SIZE - 1, FLOOR - 1, 20, VoxelPalette.SAND_ID);
+        VoxelBody onSand = body(2.5f, FLOOR, 15.5f);
+        onSand.setWalkDirection(4f, 0);
+        run(onSand, 120);
+        float sand = (float) (onSand.x - 2.5);
+
+        float modifier = world.getPalette().getSpeedModifier(VoxelPalette.SAND_ID);
+        assertTrue(modifier < 1f);
+        assertEquals(stone * modifier, sand, stone * 0.05f);
+
+        // In the air the ground no longer slows it
+        onSand.jump();
+        run(onSand, 2);
+        assertFalse(onSand.isOnGround());
+        assertEquals(1f, onSand.groundSpeed);
+    }
+
+    @Test
+    void ticksDoNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        world.fillBox(12, FLOOR, 0, 12, FLOOR, SIZE - 1, VoxelPalette.STONE_ID);
+        VoxelBody body = body(8.5f, FLOOR + 3, 8.5f);
+        motor.add(body);
+        body.setWalkDirection(3f, 1f);
+        motor.update(1f);   // warm up
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1000; i++) {
+            if (i % 50 == 0) body.jump();
+            motor.update(VoxelMotor.TICK);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        // Leave room for the measuring itself, not for per-tick garbage
+        assertTrue(allocated < 1024, allocated + " bytes allocated in 1000 ticks");
+    }
+
+    private static VoxelBody body(float x, float y, float z) {
+        VoxelBody body = new VoxelBody(0.3f, 1.8f);
+        body.warp(x, y, z);
+        return body;
+    }
+
+    private void run(VoxelBody body, int ticks) {
+        for (int i = 0; i < ticks; i++) motor.step(body, VoxelMotor.TICK);
+    }
+}
@@ -0,0 +1,91 @@
+package jogo.voxel.generation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The grid versions of the noise layers must give GetNoise's values bit for bit: the
+ * generators use the grids, and the surface they produce has to match the per-point noise.
+ */
+class RuidoTest {
+    private static final long[] SEEDS = {0, 12345, -987654321987L};
+    // Block-aligned and off-grid origins, both signs
+    private static final float[][] ORIGINS = {{0, 0, 0}, {-1000, -37, 4096}, {123.5f, 17.25f, -77.75f}};
+
+    private interface Layer2D {
+        float at(Ruido noise, float x, float z);
+    }
+
+    private interface Grid2D {
+        void fill(Ruido noise, float[] out, float x0, float z0, float step, int count);
+    }
+
+    @Test
+    void biomaGridMatchesGetNoise() {
+        assertGrid2D(Ruido::bioma, Ruido::bioma);           // FBm
+    }
+
+    @Test
+    void montanhaGridMatchesGetNoise() {
+        assertGrid2D(Ruido::montanha, Ruido::montanha);     // Ridged
+    }
+
+    @Test
+    void planicieGridMatchesGetNoise() {
+        assertGrid2D(Ruido::planicie, Ruido::planicie);     // FBm
+    }
+
+    @Test
+    void detalheGridMatchesGetNoise() {
+        assertGrid2D(Ruido::detalhe, Ruido::detalhe);       // None
+    }
+
+    @Test
+    void relevoGridMatchesGetNoise() {
+        // 3D FBm, with the coarse steps DensityGenerator samples at
+        int countXZ = 5, countY = 9;
+        for (long seed : SEEDS) {
+            Ruido noise = new Ruido(seed);
+            for (float[] o : ORIGINS) {
+                for (float[] steps : new float[][]{{4, 8}, {1, 1}, {0.5f, 3}}) {
+                    float stepXZ = steps[0], stepY = steps[1];
+                    float[] grid = new float[countXZ * countY * countXZ];
+                    noise.relevo(grid, o[0], o[1], o[2], stepXZ, stepY, countXZ, countY);
+                    for (int i = 0; i < countXZ; i++) {
+                        for (int j = 0; j < countY; j++) {
+                            for (int k = 0; k < countXZ; k++) {
+                                float x = o[0] + i * stepXZ, y = o[1] + j * stepY, z = o[2] + k * stepXZ;
+                                assertSameBits(noise.relevo(x, y, z), grid[(i * countY + j) * countXZ + k],
+                                        "relevo " + x + "," + y + "," + z + " seed " + seed);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertGrid2D(Layer2D point, Grid2D grid) {
+        int count = 17;
+        for (long seed : SEEDS) {
+            Ruido noise = new Ruido(seed);
+            for (float[] o : ORIGINS) {
+                for (float step : new float[]{1, 4, 0.75f}) {
+                    float[] out = new float[count * count];
+                    grid.fill(noise, out, o[0], o[2], step, count);
+                    for (int i = 0; i < count; i++) {
+                        for (int k = 0; k < count; k++) {
+                            float x = o[0] + i * step, z = o[2] + k * step;
+                            assertSameBits(point.at(noise, x, z), out[i * count + k], x + "," + z + " seed " + seed);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertSameBits(float expected, float actual, String where) {
+        assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(actual), where + ": " + expected + " vs " + actual);
+    }
+}